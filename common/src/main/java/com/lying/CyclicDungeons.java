@@ -88,7 +88,9 @@ public final class CyclicDungeons
 	{
 		PitBlock.registerEvent();
 		TickEvent.SERVER_LEVEL_POST.register(w -> BlockResetUtility.getBlockResetUtility(w.getServer()).tickWorld(w));
+		TickEvent.SERVER_PRE.register(DungeonBuilder::onServerTickStart);
 		TickEvent.SERVER_LEVEL_PRE.register(DungeonBuilder::onServerTick);
 		LifecycleEvent.SERVER_STARTED.register(DungeonBuilder::onServerStart);
+		LifecycleEvent.SERVER_STOPPING.register(DungeonBuilder::onServerStop);
 	}
 }
@@ -1,24 +1,19 @@
 package com.lying;
 
-import java.util.List;
+import java.util.Collection;
 import java.util.Optional;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingDeque;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
-import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 
-import com.google.common.collect.Lists;
-import com.lying.blueprint.Blueprint;
+import com.lying.blueprint.BlueprintBuild;
+import com.lying.generation.GenerationContext;
+import com.lying.generation.GenerationJob;
+import com.lying.generation.GenerationScheduler;
+import com.lying.generation.GenerationStage;
+import com.lying.generation.LayoutStages;
+import com.lying.generation.StageResult;
 import com.lying.grammar.CDGrammar;
 import com.lying.grammar.GrammarPhrase;
-import com.lying.grammar.RoomMetadata;
-import com.lying.graph.GraphOrganiser;
-import com.lying.graph.GraphScruncher;
-import com.lying.init.CDLoggers;
 import com.lying.init.CDThemes;
 import com.lying.worldgen.theme.Theme;
 
@@ -31,9 +26,12 @@ public class DungeonBuilder
 {
 	public static final Logger LOGGER = CyclicDungeons.LOGGER;
 	private static final DungeonBuilder INSTANCE	= new DungeonBuilder();
-	private static final GraphOrganiser ORGANISER = GraphOrganiser.Poisson.create();
-	private static final ExecutorService THREAD = new ThreadPoolExecutor(0, 16, 60L, TimeUnit.SECONDS, new LinkedBlockingDeque<>());
-	private static List<BlueprintGeneration> SPOOL = Lists.newArrayList();
+	
+	private final GenerationScheduler scheduler = new GenerationScheduler(DungeonBuilder::processStage);
+	
+	/** Remaining construction budget of the current tick, shared between all dungeons being built */
+	private long tickDeadline = 0L;
+	private int tickBlocks = 0;
 	
 	protected DungeonBuilder() { }
 	
@@ -41,114 +39,104 @@ public class DungeonBuilder
 	
 	public boolean generate(BlockPos position, ServerWorld world, Random rand)
 	{
-		final long startTime = System.currentTimeMillis();
+		return generate(position, world, rand, 0).isPresent();
+	}
+	
+	/**
+	 * Queues a new dungeon for generation
+	 * @param priority Dungeons with higher priority have their stages processed first
+	 * @return The queued job, or an empty optional if the queue is full or no initial phrase could be made
+	 */
+	public Optional<GenerationJob> generate(BlockPos position, ServerWorld world, Random rand, int priority)
+	{
+		if(!scheduler.isRunning())
+			startScheduler();
+		
+		if(scheduler.isFull())
+		{
+			LOGGER.warn(" ! Dungeon generation queue is full ({} jobs), request at {} rejected", scheduler.capacity(), position.toShortString());
+			return Optional.empty();
+		}
+		
 		final Theme theme = CDThemes.instance().get(CDThemes.ID_GENERIC).get();
 		final GrammarPhrase phrase = CDGrammar.initialPhrase(15, rand);	// FIXME Resolve stock grammar phrase passage issues
 		if(phrase == null)
 		{
 			LOGGER.error(" ! Tried to generate a dungeon w/out providing an initial phrase");
-			return false;
+			return Optional.empty();
 		}
 		
-		LOGGER.info("Starting dungeon calculation at {} in {}", position, world);
-		SPOOL.add(new BlueprintGeneration(THREAD.submit(() -> 
-		{
-			CDGrammar.generate(phrase, rand);
-			if(phrase == null || phrase.isEmpty())
-			{
-				LOGGER.error(" # Grammar generation failed");
-				return Optional.empty();
-			}
-			long time;
-			LOGGER.info(" # Grammar generation complete in {} ms, {} rooms across {} depths", (time = System.currentTimeMillis()) - startTime, phrase.size(), phrase.depth());
-			
-			Blueprint blueprint = Blueprint.fromGraph(phrase);
-			blueprint.forEach(room -> 
-			{
-				final RoomMetadata meta = room.metadata();
-				meta.type().prepare(meta, rand);
-			});
-			CDLoggers.GRAMMAR.info(" # Room sizes selected");
-			
-			int attempts = 50;
-			do
-			{
-				CDLoggers.PLANAR.info(" - Attempt {} at organising graph", attempts);
-				ORGANISER.organise(blueprint, rand);
-			}
-			while(blueprint.hasErrors() && attempts-- > 0);
-			if(blueprint.hasErrors())
-			{
-				LOGGER.error(" # Graph organisation failed");
-				return Optional.empty();
-			}
-			LOGGER.info(" # Graph organisation complete in {}ms", System.currentTimeMillis() - time);
-			
-			time = System.currentTimeMillis();
-			GraphScruncher.collapse(blueprint);
-			if(blueprint.hasErrors())
-			{
-				LOGGER.error(" # Passage optimisation failed");
-				return Optional.empty();
-			}
-			LOGGER.info(" # Passage optimisation complete in {}ms", System.currentTimeMillis() - time);
-			return Optional.of(blueprint);
-		}), position, world, theme, rand, startTime));
-		
-		return true;
+		final GenerationContext context = GenerationContext.from(rand);
+		Optional<GenerationJob> job = scheduler.submit(id -> new GenerationJob(id, priority, phrase, position, world, theme, context));
+		job.ifPresent(j -> LOGGER.info("Starting dungeon calculation {} at {} in {}", j.id(), position, world));
+		return job;
 	}
 	
-	public static void onServerStart(MinecraftServer server)
+	/** Returns all dungeons currently queued or in progress */
+	public Collection<GenerationJob> jobs() { return scheduler.jobs(); }
+	
+	/** Cancels the dungeon with the given ID, returning true if it was found */
+	public boolean cancel(int id) { return scheduler.cancel(id); }
+	
+	private void startScheduler()
 	{
-		SPOOL.clear();
+		scheduler.start(CyclicDungeons.config.generationThreads(), CyclicDungeons.config.maxQueuedDungeons());
 	}
 	
-	public static void onServerTick(ServerWorld event)
+	/** Performs some or all of the given stage of the given job */
+	private static StageResult processStage(GenerationJob job, GenerationStage stage)
 	{
-		SPOOL.stream().filter(BlueprintGeneration::isFailed).forEach(r -> LOGGER.error(" # Dungeon calculation failed at {}", r.position()));
-		SPOOL.removeIf(BlueprintGeneration::isFailed);
+		if(LayoutStages.STAGES.contains(stage))
+			return LayoutStages.process(job, stage);
 		
-		SPOOL.forEach(gen -> 
+		switch(stage)
 		{
-			if(gen.isFinished())
-			{
-				final long time = System.currentTimeMillis();
-				if(gen.build())
-					LOGGER.info(" # Dungeon generation at {} complete in {}ms, {}ms total", gen.position(), System.currentTimeMillis() - time, System.currentTimeMillis() - gen.startTime);
-				else
-					LOGGER.error(" # Dungeon generation failed at {}", gen.position());
-			}
-		});
-		SPOOL.removeIf(BlueprintGeneration::isFinished);
+			case BUILD:
+				if(job.build() == null)
+				{
+					Optional<BlueprintBuild> prepared = job.tiles() == null ? 
+							job.blueprint().prepareBuild(job.position(), job.world(), job.context()) : 
+							job.blueprint().prepareBuild(job.position(), job.world(), job.context(), job.tiles());
+					if(prepared.isEmpty())
+					{
+						LOGGER.error(" # Dungeon generation failed at {}", job.position());
+						return StageResult.FAILED;
+					}
+					job.setBuild(prepared.get());
+				}
+				
+				BlueprintBuild build = job.build();
+				if(INSTANCE.tickBlocks > 0 && System.currentTimeMillis() < INSTANCE.tickDeadline)
+					INSTANCE.tickBlocks -= build.tick(INSTANCE.tickDeadline, INSTANCE.tickBlocks);
+				if(!build.isComplete())
+					return StageResult.PENDING;
+				
+				LOGGER.info(" # Dungeon generation at {} complete in {}ms over {} ticks, {}ms total", job.position(), System.currentTimeMillis() - build.startTime(), build.ticks(), System.currentTimeMillis() - job.startTime());
+				return StageResult.DONE;
+			default:
+				return StageResult.DONE;
+		}
 	}
 	
-	private record BlueprintGeneration(Future<Optional<Blueprint>> future, BlockPos position, ServerWorld world, Theme theme, Random rand, long startTime)
+	public static void onServerStart(MinecraftServer server)
 	{
-		public boolean isFinished() { return future.isDone(); }
-		
-		public boolean isFailed()
-		{
-			return future.isCancelled() || future.isDone() && blueprint() == null;
-		}
-		
-		@NotNull
-		protected Optional<Blueprint> blueprint()
-		{
-			if(!future.isDone())
-				return Optional.empty();
-			Optional<Blueprint> blueprint = null;
-			try
-			{
-				blueprint = future.get();
-			}
-			catch(Exception e) { }
-			return blueprint;
-		}
-		
-		public boolean build()
-		{
-			Optional<Blueprint> blueprint = blueprint();
-			return blueprint.isPresent() && blueprint.get().build(position, world, rand);
-		}
+		INSTANCE.startScheduler();
+	}
+	
+	public static void onServerStop(MinecraftServer server)
+	{
+		INSTANCE.scheduler.shutdown();
+	}
+	
+	/** Resets the construction budget at the start of each server tick */
+	public static void onServerTickStart(MinecraftServer server)
+	{
+		INSTANCE.tickDeadline = System.currentTimeMillis() + CyclicDungeons.config.buildMillisPerTick();
+		INSTANCE.tickBlocks = CyclicDungeons.config.buildBlocksPerTick();
+	}
+	
+	public static void onServerTick(ServerWorld world)
+	{
+		INSTANCE.scheduler.tick(world);
 	}
 }
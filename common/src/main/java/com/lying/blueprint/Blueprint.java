@@ -1,19 +1,29 @@
 package com.lying.blueprint;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import java.util.function.BiFunction;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 import java.util.stream.Stream;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import com.google.common.base.Suppliers;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.lying.blueprint.BlueprintBuild.Step;
+import com.lying.blueprint.BlueprintTiles.SolvedRoom;
+import com.lying.generation.GenerationContext;
 import com.lying.grammar.GrammarPhrase;
 import com.lying.grammar.GrammarRoom;
 import com.lying.grammar.GrammarTerm;
@@ -28,7 +38,11 @@ import com.lying.init.CDTerms;
 import com.lying.init.CDThemes;
 import com.lying.init.CDTiles;
 import com.lying.reference.Reference;
+import com.lying.utility.geometry.AbstractBox2f;
+import com.lying.utility.geometry.SpatialGrid;
+import com.lying.utility.geometry.VoxelMask;
 import com.lying.utility.logging.DebugLogger;
+import com.lying.worldgen.SectionWriter;
 import com.lying.worldgen.TileGenerator;
 import com.lying.worldgen.theme.Theme;
 import com.lying.worldgen.tile.DefaultTiles;
@@ -41,7 +55,7 @@ import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Box;
-import net.minecraft.util.math.Vec3d;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.random.Random;
 
 @SuppressWarnings("serial")
@@ -50,7 +64,9 @@ public class Blueprint extends ArrayList<BlueprintRoom>
 	public static final DebugLogger LOGGER = CDLoggers.WORLDGEN;
 	public static final int ROOM_TILE_HEIGHT	= 4;
 	public static final int ROOM_HEIGHT			= ROOM_TILE_HEIGHT * Tile.TILE_SIZE;
-	public static final BlockState SHELL		= CDBlocks.CYLICIUM_BLOCK.get().getDefaultState();
+	/** Block enclosing each room, resolved on first use so the blueprint can be used without the game's registries */
+	public static final Supplier<BlockState> SHELL	= Suppliers.memoize(() -> CDBlocks.CYLICIUM_BLOCK.get().getDefaultState());
+	private static final int PASSAGE_INDEX_CELL	= 8;
 	
 	protected boolean isOrganised = false;
 	protected int maxDepth = 0;
@@ -58,6 +74,19 @@ public class Blueprint extends ArrayList<BlueprintRoom>
 	protected List<BlueprintPassage> passageCache = Lists.newArrayList();
 	private List<BlueprintRoom> criticalPath = Lists.newArrayList();
 	private Optional<Identifier> themeId = Optional.empty();
+	/** Incremented whenever the passage cache is rebuilt or cleared */
+	private int passageVersion = 0;
+	@Nullable
+	private BlueprintErrors errors = null;
+	@Nullable
+	private BlueprintOccupancy occupancy = null;
+	/** When false, moving rooms does not mark any cached passages for recalculation */
+	private boolean trackPassages = true;
+	/** Rooms whose outgoing passages must be recalculated before the passage cache is next used */
+	private final Set<BlueprintRoom> dirtyParents = Sets.newLinkedHashSet();
+	/** Spatial index of cached passages by their tile bounds, built on demand */
+	@Nullable
+	private SpatialGrid<BlueprintPassage> passageIndex = null;
 	
 	public static Blueprint fromGraph(GrammarPhrase graphIn)
 	{
@@ -86,6 +115,24 @@ public class Blueprint extends ArrayList<BlueprintRoom>
 		return clone;
 	}
 	
+	/** Returns an independent copy of this blueprint, including room entry tiles, organisation state, and cached passages */
+	public Blueprint snapshot()
+	{
+		Blueprint copy = new Blueprint();
+		Map<UUID, BlueprintRoom> rooms = new HashMap<>();
+		for(BlueprintRoom room : this)
+		{
+			BlueprintRoom clone = room.clone().setEntryTile(room.getEntryTile());
+			rooms.put(clone.uuid(), clone);
+			copy.add(clone);
+		}
+		copy.themeId = themeId;
+		copy.isOrganised = isOrganised;
+		if(isOrganised)
+			copy.passageCache = Lists.newArrayList(passages().stream().map(p -> p.copyFor(rooms)).toList());
+		return copy;
+	}
+	
 	public Optional<BlueprintRoom> start() { return stream().filter(n -> n.metadata().is(CDTerms.instance().start())).findFirst(); }
 	
 	public Optional<BlueprintRoom> end() { return stream().filter(n -> n.metadata().is(CDTerms.instance().end())).findFirst(); }
@@ -101,6 +148,8 @@ public class Blueprint extends ArrayList<BlueprintRoom>
 		if(result)
 		{
 			node.attachToBlueprint(this);
+			errors = null;
+			occupancy = null;
 			
 			// Update the depth range
 			maxDepth = 0;
@@ -150,6 +199,67 @@ public class Blueprint extends ArrayList<BlueprintRoom>
 	/** Returns true if this blueprint contains any errors that may interfere with generation */
 	public boolean hasErrors() { return hasErrors(this); }
 	
+	/** Returns the error tracker of this blueprint, creating it if necessary */
+	public BlueprintErrors errors()
+	{
+		if(errors == null)
+			errors = new BlueprintErrors(this);
+		return errors;
+	}
+	
+	/** Returns the occupancy raster of this blueprint, creating it if necessary */
+	public BlueprintOccupancy occupancy()
+	{
+		if(occupancy == null)
+			occupancy = new BlueprintOccupancy(this);
+		return occupancy;
+	}
+	
+	/** Called by rooms in this blueprint when their position changes */
+	public void onRoomMoved(BlueprintRoom room)
+	{
+		if(trackPassages)
+			markPassagesAffectedBy(room);
+		if(occupancy != null)
+			occupancy.onRoomMoved(room);
+		if(errors != null)
+			errors.onRoomMoved(room);
+	}
+	
+	/**
+	 * Marks the passages that depend upon the given room for recalculation.<br>
+	 * These are the passages leading from or into the room, and any passage whose tiles now conflict with it.
+	 */
+	private void markPassagesAffectedBy(BlueprintRoom room)
+	{
+		if(!isOrganised() || passageCache.isEmpty())
+			return;
+		
+		dirtyParents.add(room);
+		room.getParent(this).ifPresent(dirtyParents::add);
+		
+		GridTile min = room.tileMin(), max = room.tileMax();
+		for(BlueprintPassage passage : passageIndex().query(min.x - 1, min.y - 1, max.x + 1, max.y + 1))
+			if(!dirtyParents.contains(passage.parent()) && passage.tiles().stream().anyMatch(room::occupiesOrIsAdjacent))
+				dirtyParents.add(passage.parent());
+	}
+	
+	private SpatialGrid<BlueprintPassage> passageIndex()
+	{
+		if(passageIndex == null)
+		{
+			passageIndex = new SpatialGrid<>(PASSAGE_INDEX_CELL);
+			passageCache.forEach(this::indexPassage);
+		}
+		return passageIndex;
+	}
+	
+	private void indexPassage(BlueprintPassage passage)
+	{
+		AbstractBox2f bounds = passage.tileBounds();
+		passageIndex.put(passage, MathHelper.floor(bounds.minX()), MathHelper.floor(bounds.minY()), MathHelper.ceil(bounds.maxX()), MathHelper.ceil(bounds.maxY()));
+	}
+	
 	/** Returns true if the set of rooms contains any errors that may interfere with generation */
 	public static boolean hasErrors(Blueprint chart)
 	{
@@ -166,81 +276,151 @@ public class Blueprint extends ArrayList<BlueprintRoom>
 		return type.tally(chart, -1);
 	}
 	
+	/** Builds this blueprint in the world immediately */
 	public boolean build(BlockPos position, ServerWorld world, Random rand)
 	{
-		if(isEmpty() || hasErrors())
+		Optional<BlueprintBuild> build = prepareBuild(position, world, rand);
+		if(build.isEmpty())
 			return false;
 		
-		long timeMillis = System.currentTimeMillis();
-		LOGGER.info(" # Beginning blueprint generation");
+		build.get().drain();
+		return true;
+	}
+	
+	/**
+	 * Prepares a resumable construction of this blueprint in the world, to be performed over time.
+	 * @return The construction job, or an empty optional if this blueprint cannot be built
+	 */
+	public Optional<BlueprintBuild> prepareBuild(BlockPos position, ServerWorld world, Random rand)
+	{
+		return prepareBuild(position, world, GenerationContext.from(rand));
+	}
+	
+	/**
+	 * Prepares a resumable construction of this blueprint in the world, to be performed over time.<br>
+	 * Each room and passage draws from its own random provided by the given context.
+	 * @return The construction job, or an empty optional if this blueprint cannot be built
+	 */
+	public Optional<BlueprintBuild> prepareBuild(BlockPos position, ServerWorld world, GenerationContext context)
+	{
+		if(isEmpty() || hasErrors())
+			return Optional.empty();
 		
-		buildExteriorShell(position, world);
+		return prepareBuild(position, world, context, BlueprintTiles.solve(this, world, context));
+	}
+	
+	/**
+	 * Prepares a resumable construction of this blueprint in the world from its already-solved tile maps.<br>
+	 * Construction only places the solved tiles and applies room post-processing, so it performs little work beyond modifying the world.
+	 * @return The construction job, or an empty optional if this blueprint cannot be built
+	 */
+	public Optional<BlueprintBuild> prepareBuild(BlockPos position, ServerWorld world, GenerationContext context, BlueprintTiles tiles)
+	{
+		if(isEmpty() || hasErrors())
+			return Optional.empty();
+		
+		LOGGER.info(" # Beginning blueprint generation");
+		BlueprintBuild build = new BlueprintBuild();
 		
-		buildExteriorPaths(position, world, rand);
+		buildExteriorShell(position, world, build);
 		
-		buildRooms(position, world, rand);
+		buildExteriorPaths(position, world, tiles, build);
 		
-		buildEntrance(position, world, rand);
+		buildRooms(position, world, tiles, build);
 		
-		LOGGER.info(" # Blueprint generation completed, {}ms total", System.currentTimeMillis() - timeMillis);
-		return true;
+		build.add(Step.of(() -> 
+		{
+			buildEntrance(position, world, context.forEntrance());
+			LOGGER.info(" # Blueprint generation completed, {}ms total over {} ticks", System.currentTimeMillis() - build.startTime(), build.ticks());
+		}, Tile.TILE_SIZE * Tile.TILE_SIZE * Tile.TILE_SIZE * 2));
+		return Optional.of(build);
 	}
 	
 	public void buildExteriorShell(BlockPos position, ServerWorld world)
 	{
-		long timeMillis = System.currentTimeMillis();
-		LOGGER.info(" # Generating exterior shell");
+		BlueprintBuild build = new BlueprintBuild();
+		buildExteriorShell(position, world, build);
+		build.drain();
+	}
+	
+	protected void buildExteriorShell(BlockPos position, ServerWorld world, BlueprintBuild build)
+	{
+		build.add(Step.of(() -> LOGGER.info(" # Generating exterior shell"), 0));
 		
 		// Collect all bounding boxes
 		List<Box> bounds = Lists.newArrayList();
 		stream().map(BlueprintRoom::worldBox).forEach(bounds::add);
 		passages().stream().map(BlueprintPassage::worldBox).map(b -> b.stream().toList()).forEach(bounds::addAll);
 		
-		// Expand the bounding boxes 1 block in all directions
-		final Predicate<BlockPos> isExterior = p -> bounds.stream().noneMatch(b -> b.contains(new Vec3d(p.getX(), p.getY(), p.getZ()).add(0.5D)));
-		bounds.stream().map(b -> b.offset(position).expand(1)).forEach(b -> 
-			BlockPos.Mutable.iterate(
-					new BlockPos((int)b.minX, (int)b.minY, (int)b.minZ), 
-					new BlockPos((int)b.maxX, (int)b.maxY, (int)b.maxZ).add(-1, -1, -1))
-				.forEach(p -> 
-				{
-					// Place walling at any position outside the original boundaries
-					if(isExterior.test(p))
-						Tile.tryPlace(SHELL, p, world);
-				}));
+		// Rasterise the bounding boxes, then expand them 1 block in all directions to find the walling
+		final List<Box> worldBounds = bounds.stream().map(b -> b.offset(position)).toList();
+		final VoxelMask interior = VoxelMask.enclosing(worldBounds, 1);
+		worldBounds.forEach(interior::fill);
+		final VoxelMask shell = interior.dilate().andNot(interior);
 		
-		LOGGER.info(" ## Exterior shell completed in {}ms", System.currentTimeMillis() - timeMillis);
+		final SectionWriter writer = new SectionWriter(world);
+		build.add(new BlueprintBuild.PositionStep(shell.iterator())
+		{
+			public int perform(int budget)
+			{
+				int placed = super.perform(budget);
+				writer.flush();
+				return placed;
+			}
+			
+			protected boolean apply(BlockPos p)
+			{
+				writer.place(p, SHELL.get());
+				return true;
+			}
+		});
 	}
 	
 	public void buildRooms(BlockPos position, ServerWorld world, Random rand)
 	{
-		long timeMillis = System.currentTimeMillis();
-		LOGGER.info(" # Generating rooms");
+		BlueprintBuild build = new BlueprintBuild();
+		buildRooms(position, world, BlueprintTiles.solve(this, world, GenerationContext.from(rand), true, false), build);
+		build.drain();
+	}
+	
+	protected void buildRooms(BlockPos position, ServerWorld world, BlueprintTiles tiles, BlueprintBuild build)
+	{
+		build.add(Step.of(() -> LOGGER.info(" # Generating rooms"), 0));
 		
-		final List<BlueprintPassage> passages = Lists.newArrayList(passages());
 		int tally = 0;
-		for(BlueprintRoom node : this)
+		for(SolvedRoom solved : tiles.rooms())
 		{
+			final int index = ++tally;
+			final BlueprintRoom node = solved.room();
 			RoomMetadata meta = node.metadata();
 			GrammarTerm type = meta.type();
-			LOGGER.info(" # Room {} of {}: {}x{} {}", ++tally, size(), meta.size().x(), meta.size().y(), type.registryName().getPath());
-			if(type.generate(position, world, node, passages, rand))
-				LOGGER.info(" ## Finished");
-			else
-				LOGGER.error(" ## Error during room generation");
+			build.add(Step.of(() -> 
+			{
+				LOGGER.info(" # Room {} of {}: {}x{} {}", index, size(), meta.size().x(), meta.size().y(), type.registryName().getPath());
+				if(type.place(position, world, node, solved.map(), solved.rand()))
+					LOGGER.info(" ## Finished");
+				else
+					LOGGER.error(" ## Error during room generation");
+			}, meta.size().x() * meta.size().y() * ROOM_TILE_HEIGHT * Tile.TILE_SIZE * Tile.TILE_SIZE * Tile.TILE_SIZE));
 		};
-		
-		LOGGER.info(" ## Rooms completed in {}ms", System.currentTimeMillis() - timeMillis);
 	}
 	
 	public void buildExteriorPaths(BlockPos position, ServerWorld world, Random rand)
 	{
-		long timeMillis = System.currentTimeMillis();
-		LOGGER.info(" # Generating exterior passages");
-		
-		passages().forEach(p -> p.generate(position, world, rand));
+		BlueprintBuild build = new BlueprintBuild();
+		buildExteriorPaths(position, world, BlueprintTiles.solve(this, world, GenerationContext.from(rand), false, true), build);
+		build.drain();
+	}
+	
+	protected void buildExteriorPaths(BlockPos position, ServerWorld world, BlueprintTiles tiles, BlueprintBuild build)
+	{
+		build.add(Step.of(() -> LOGGER.info(" # Generating exterior passages"), 0));
 		
-		LOGGER.info(" ## Passages completed in {}ms", System.currentTimeMillis() - timeMillis);
+		for(int i=0; i<tiles.passages().size(); i++)
+		{
+			final BlueprintPassage passage = tiles.passages().get(i);
+			tiles.passageMaps().get(i).ifPresent(map -> build.add(Step.of(() -> map.generate(position, world), passage.size() * BlueprintPassage.PASSAGE_HEIGHT * Tile.TILE_SIZE * Tile.TILE_SIZE * Tile.TILE_SIZE)));
+		}
 	}
 	
 	public void buildEntrance(BlockPos position, ServerWorld world, Random rand)
@@ -268,15 +448,101 @@ public class Blueprint extends ArrayList<BlueprintRoom>
 	public List<BlueprintPassage> passages()
 	{
 		if(passageCache.isEmpty() && size() > 1)
+		{
 			passageCache = GraphOrganiser.mergePassages(GraphOrganiser.getPassages(this), GraphOrganiser.getBounds(this));
+			dirtyParents.clear();
+			passageIndex = null;
+			++passageVersion;
+		}
+		else if(!dirtyParents.isEmpty())
+		{
+			List<BlueprintRoom> parents = Lists.newArrayList(dirtyParents);
+			dirtyParents.clear();
+			refreshPassagesFrom(parents);
+		}
 		
 		return passageCache;
 	}
 	
+	/** Returns a value that changes whenever the passages of this blueprint do */
+	public int passageVersion() { return passageVersion; }
+	
+	void setPassageTracking(boolean var) { trackPassages = var; }
+	
+	/**
+	 * Recalculates the passages leading out of the given rooms, retaining all other cached passages.<br>
+	 * Parents are recalculated in order of depth, and any child whose entry tile changes as a result has its own passages recalculated in turn.
+	 */
+	private void refreshPassagesFrom(Collection<BlueprintRoom> parents)
+	{
+		Map<BlueprintRoom, List<BlueprintPassage>> replaced = new HashMap<>();
+		Set<BlueprintRoom> pending = Sets.newHashSet(parents);
+		while(!pending.isEmpty())
+		{
+			BlueprintRoom parent = pending.stream().min(Comparator.comparingInt(r -> r.metadata().depth())).get();
+			pending.remove(parent);
+			
+			List<BlueprintRoom> children = parent.getChildren(this);
+			List<GridTile> entryTiles = children.stream().map(BlueprintRoom::getEntryTile).toList();
+			List<BlueprintPassage> passages = passagesFrom(parent);
+			passages.forEach(BlueprintPassage::tiles);
+			replaced.put(parent, passages);
+			
+			for(int i=0; i<children.size(); i++)
+			{
+				BlueprintRoom child = children.get(i);
+				if(child.hasChildren() && !replaced.containsKey(child) && !Objects.equals(entryTiles.get(i), child.getEntryTile()))
+					pending.add(child);
+			}
+		}
+		
+		SpatialGrid<BlueprintPassage> index = passageIndex();
+		List<BlueprintPassage> refreshed = Lists.newArrayList();
+		Set<BlueprintRoom> done = Sets.newHashSet();
+		for(BlueprintPassage passage : passageCache)
+			if(!replaced.containsKey(passage.parent()))
+				refreshed.add(passage);
+			else
+			{
+				index.remove(passage);
+				if(done.add(passage.parent()))
+					refreshed.addAll(replaced.get(passage.parent()));
+			}
+		
+		replaced.forEach((parent, passages) -> 
+		{
+			if(done.add(parent))
+				refreshed.addAll(passages);
+			passages.forEach(this::indexPassage);
+		});
+		
+		passageCache = refreshed;
+		++passageVersion;
+	}
+	
+	/** Replaces the passage cache with the given passages, discarding any pending recalculation */
+	void restorePassages(List<BlueprintPassage> passages)
+	{
+		passageCache = Lists.newArrayList(passages);
+		dirtyParents.clear();
+		passageIndex = null;
+		++passageVersion;
+	}
+	
+	private List<BlueprintPassage> passagesFrom(BlueprintRoom room)
+	{
+		return GraphOrganiser.mergePassages(room.getChildren(this).stream().map(c -> new BlueprintPassage(room, c)).toList(), GraphOrganiser.getBounds(this));
+	}
+	
 	public void clearPassageCache()
 	{
-		if(isOrganised())
+		if(isOrganised() && !passageCache.isEmpty())
+		{
 			passageCache.clear();
+			dirtyParents.clear();
+			passageIndex = null;
+			++passageVersion;
+		}
 	}
 	
 	/** Returns the total number of tiles in this dungeon occupied by passageways */
@@ -324,60 +590,27 @@ public class Blueprint extends ArrayList<BlueprintRoom>
 	public static enum ErrorType
 	{
 		/** Rooms that share space with other rooms */
-		COLLISION((chart,limit) -> 
-		{
-			int tally = 0;
-			for(BlueprintRoom room : chart)
-				if(chart.stream().filter(r -> !r.equals(room)).anyMatch(room::intersects))
-					if(++tally >= limit && limit > 0)
-						return tally;
-			return tally;
-		}),
+		COLLISION(BlueprintErrors::collisions),
 		/** Passages that intersect other unrelated passages */
-		INTERSECTION((chart,limit) -> 
-		{
-			int tally = 0;
-			final List<BlueprintPassage> passages = chart.passages();
-			for(int i=0; i<passages.size(); i++)
-			{
-				final BlueprintPassage passage = passages.get(i);
-				List<BlueprintPassage> others = Lists.newArrayList(passages.subList(i+1, passages.size()));
-				if(i > 0)
-					others.addAll(passages.subList(0, i));
-				
-				for(BlueprintPassage other : others)
-					if(
-						passage.tileBounds().intersects(other.tileBounds()) &&
-						!passage.canShareSpaceWith(other) && 
-						passage.intersects(other)
-						)
-							if(++tally >= limit && limit > 0)
-								return tally;
-			}
-			return tally;
-		}),
+		INTERSECTION(BlueprintErrors::intersections),
 		/** Passages that were unable to be generated for whatever reason */
-		PASSAGE((chart,limit) -> 
-		{
-			int tally = 0;
-			for(BlueprintPassage passage : chart.passages())
-				if(passage.containsFailures())
-					if(++tally >= limit && limit > 0)
-						return tally;
-			return tally;
-		});
+		PASSAGE(BlueprintErrors::failures);
 		
 		public static Stream<ErrorType> stream() { return List.of(values()).stream(); }
 		
-		private final BiFunction<Blueprint,Integer,Integer> tallyFunc;
+		private final ToIntFunction<BlueprintErrors> tallyFunc;
 		
-		private ErrorType(BiFunction<Blueprint,Integer,Integer> funcIn)
+		private ErrorType(ToIntFunction<BlueprintErrors> funcIn)
 		{
 			tallyFunc = funcIn;
 		}
 		
 		public boolean anyExist(Blueprint chart) { return tally(chart, 1) == 1; }
 		
-		public int tally(Blueprint chart, int limit) { return tallyFunc.apply(chart, limit); }
+		public int tally(Blueprint chart, int limit)
+		{
+			int tally = tallyFunc.applyAsInt(chart.errors());
+			return limit > 0 ? Math.min(tally, limit) : tally;
+		}
 	}
 }
@@ -0,0 +1,122 @@
+package com.lying.blueprint;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+import com.lying.utility.logging.DebugLogger;
+
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * A resumable in-world construction of a {@link Blueprint}.<br>
+ * Construction is divided into discrete steps which are performed in order until a time or block budget is exhausted,
+ * allowing large dungeons to be placed across several server ticks.
+ */
+public class BlueprintBuild
+{
+	public static final DebugLogger LOGGER = Blueprint.LOGGER;
+	
+	private final Deque<Step> steps = new ArrayDeque<>();
+	private final long startTime = System.currentTimeMillis();
+	private int blocksPlaced = 0;
+	private int ticks = 0;
+	
+	public BlueprintBuild add(Step step)
+	{
+		steps.add(step);
+		return this;
+	}
+	
+	public boolean isComplete() { return steps.isEmpty(); }
+	
+	/** Approximate number of blocks placed so far */
+	public int blocksPlaced() { return blocksPlaced; }
+	
+	/** Number of calls to {@link #tick} that performed work */
+	public int ticks() { return ticks; }
+	
+	public long startTime() { return startTime; }
+	
+	/**
+	 * Performs steps until the given time or block budget is exhausted
+	 * @param deadline System time in milliseconds after which no further steps are begun
+	 * @param maxBlocks Approximate maximum number of blocks to place
+	 * @return The approximate number of blocks placed
+	 */
+	public int tick(long deadline, int maxBlocks)
+	{
+		if(isComplete())
+			return 0;
+		
+		++ticks;
+		int placed = 0;
+		while(!steps.isEmpty() && placed < maxBlocks && System.currentTimeMillis() < deadline)
+		{
+			Step step = steps.peek();
+			placed += step.perform(maxBlocks - placed);
+			if(step.isDone())
+				steps.poll();
+		}
+		blocksPlaced += placed;
+		return placed;
+	}
+	
+	/** Performs all remaining steps immediately */
+	public void drain()
+	{
+		while(!isComplete())
+			tick(Long.MAX_VALUE, Integer.MAX_VALUE);
+	}
+	
+	/** A unit of construction work */
+	public static interface Step
+	{
+		/**
+		 * Performs some or all of this step
+		 * @param budget Approximate number of blocks this step should place, if it can be divided
+		 * @return The approximate number of blocks placed
+		 */
+		public int perform(int budget);
+		
+		/** Returns true once this step has no further work to do */
+		public default boolean isDone() { return true; }
+		
+		/** Creates an indivisible step of the given approximate size */
+		public static Step of(Runnable action, int blocks)
+		{
+			return budget ->
+			{
+				action.run();
+				return blocks;
+			};
+		}
+	}
+	
+	/** A divisible step that processes positions from an iterator in batches */
+	public static abstract class PositionStep implements Step
+	{
+		private final Iterator<BlockPos> positions;
+		
+		protected PositionStep(Iterator<BlockPos> positionsIn)
+		{
+			positions = positionsIn;
+		}
+		
+		public int perform(int budget)
+		{
+			int placed = 0;
+			long checked = 0;
+			// Checked positions are capped separately so that mostly-empty iterators still yield regularly
+			while(positions.hasNext() && placed < budget && checked++ < budget * 4L)
+				if(apply(positions.next()))
+					++placed;
+			return placed;
+		}
+		
+		public boolean isDone() { return !positions.hasNext(); }
+		
+		/** Processes the given position, returning true if a block was placed */
+		protected abstract boolean apply(BlockPos pos);
+	}
+}
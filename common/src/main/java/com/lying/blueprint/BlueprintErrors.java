@@ -0,0 +1,145 @@
+package com.lying.blueprint;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.lying.grid.GridTile;
+import com.lying.utility.geometry.AbstractBox2f;
+import com.lying.utility.geometry.SpatialGrid;
+
+import net.minecraft.util.math.MathHelper;
+
+/**
+ * Spatially-indexed tally of the errors within a blueprint.<br>
+ * Room collisions are updated incrementally as rooms move, passage errors are recounted only when the passages change.
+ */
+public class BlueprintErrors
+{
+	private static final int CELL_SIZE = 8;
+	
+	private final Blueprint chart;
+	private final SpatialGrid<BlueprintRoom> roomGrid = new SpatialGrid<>(CELL_SIZE);
+	/** Rooms each room currently shares space with */
+	private final Map<BlueprintRoom, Set<BlueprintRoom>> collisions = Maps.newIdentityHashMap();
+	private int collidingRooms = 0;
+	
+	/** Version of the blueprint's passages that the passage tallies were calculated from */
+	private int passageVersion = -1;
+	private int intersections = 0, failures = 0;
+	
+	public BlueprintErrors(Blueprint chartIn)
+	{
+		chart = chartIn;
+		chart.forEach(this::index);
+		chart.forEach(this::updateCollisions);
+	}
+	
+	/** Number of rooms that share space with at least one other room */
+	public int collisions() { return collidingRooms; }
+	
+	/** Number of times any passage intersects another unrelated passage */
+	public int intersections()
+	{
+		updatePassages();
+		return intersections;
+	}
+	
+	/** Number of passages that failed to calculate */
+	public int failures()
+	{
+		updatePassages();
+		return failures;
+	}
+	
+	/** Updates the position of the given room and rechecks it against its new neighbours */
+	public void onRoomMoved(BlueprintRoom room)
+	{
+		index(room);
+		updateCollisions(room);
+	}
+	
+	private void index(BlueprintRoom room)
+	{
+		// Expanded by one tile, since rooms immediately adjacent to one another also collide
+		GridTile min = room.tileMin(), max = room.tileMax();
+		roomGrid.put(room, min.x - 1, min.y - 1, max.x + 1, max.y + 1);
+	}
+	
+	private void updateCollisions(BlueprintRoom room)
+	{
+		Set<BlueprintRoom> previous = collisions.remove(room);
+		if(previous != null)
+		{
+			--collidingRooms;
+			for(BlueprintRoom other : previous)
+			{
+				Set<BlueprintRoom> set = collisions.get(other);
+				set.remove(room);
+				if(set.isEmpty())
+				{
+					collisions.remove(other);
+					--collidingRooms;
+				}
+			}
+		}
+		
+		GridTile min = room.tileMin(), max = room.tileMax();
+		for(BlueprintRoom other : roomGrid.query(min.x - 1, min.y - 1, max.x + 1, max.y + 1))
+			if(other != room && room.intersects(other))
+			{
+				link(room, other);
+				link(other, room);
+			}
+	}
+	
+	private void link(BlueprintRoom room, BlueprintRoom other)
+	{
+		Set<BlueprintRoom> set = collisions.get(room);
+		if(set == null)
+		{
+			collisions.put(room, set = Sets.newIdentityHashSet());
+			++collidingRooms;
+		}
+		set.add(other);
+	}
+	
+	private void updatePassages()
+	{
+		List<BlueprintPassage> passages = chart.passages();
+		if(passageVersion == chart.passageVersion())
+			return;
+		
+		intersections = failures = 0;
+		SpatialGrid<BlueprintPassage> passageGrid = new SpatialGrid<>(CELL_SIZE);
+		for(BlueprintPassage passage : passages)
+		{
+			// Expanded by one tile, since passages immediately adjacent to one another also intersect
+			AbstractBox2f bounds = passage.tileBounds();
+			passageGrid.put(passage, floor(bounds.minX()) - 1, floor(bounds.minY()) - 1, ceil(bounds.maxX()) + 1, ceil(bounds.maxY()) + 1);
+		}
+		
+		for(BlueprintPassage passage : passages)
+		{
+			if(passage.containsFailures())
+				++failures;
+			
+			AbstractBox2f bounds = passage.tileBounds();
+			for(BlueprintPassage other : passageGrid.query(floor(bounds.minX()) - 1, floor(bounds.minY()) - 1, ceil(bounds.maxX()) + 1, ceil(bounds.maxY()) + 1))
+				if(
+					other != passage &&
+					bounds.intersects(other.tileBounds()) &&
+					!passage.canShareSpaceWith(other) &&
+					passage.intersects(other)
+					)
+					++intersections;
+		}
+		passageVersion = chart.passageVersion();
+	}
+	
+	private static int floor(float value) { return MathHelper.floor(value); }
+	
+	private static int ceil(float value) { return MathHelper.ceil(value); }
+}
@@ -0,0 +1,70 @@
+package com.lying.blueprint;
+
+import java.util.List;
+import java.util.Map;
+
+import org.joml.Vector2i;
+
+import com.google.common.collect.Maps;
+import com.lying.grid.GridTile;
+
+/**
+ * A reversible movement of a set of rooms within a live blueprint.<br>
+ * The blueprint only recalculates passages that depend on the moved rooms, and the prior state can be restored without cloning the blueprint.
+ */
+public class BlueprintMove
+{
+	private final Blueprint chart;
+	private final List<BlueprintRoom> rooms;
+	private final List<GridTile> positions;
+	private final Map<BlueprintRoom, GridTile> entryTiles = Maps.newIdentityHashMap();
+	private final List<BlueprintPassage> passages;
+	private boolean resolved = false;
+	
+	private BlueprintMove(Blueprint chartIn, List<BlueprintRoom> roomsIn)
+	{
+		chart = chartIn;
+		rooms = List.copyOf(roomsIn);
+		positions = rooms.stream().map(BlueprintRoom::tilePosition).toList();
+		
+		// Resolve all passages beforehand, so none are lazily calculated from the moved positions and then restored
+		chart.passageTiles();
+		passages = List.copyOf(chart.passages());
+		chart.forEach(room -> entryTiles.put(room, room.getEntryTile()));
+	}
+	
+	/** Moves the given rooms by the given offset, marking any affected passages for recalculation */
+	public static BlueprintMove apply(Blueprint chart, List<BlueprintRoom> rooms, Vector2i offset)
+	{
+		BlueprintMove move = new BlueprintMove(chart, rooms);
+		rooms.forEach(room -> room.move(offset));
+		return move;
+	}
+	
+	/** Keeps the movement */
+	public void commit()
+	{
+		resolved = true;
+	}
+	
+	/** Restores all moved rooms, entry tiles, and passages to their state before the movement */
+	public void rollback()
+	{
+		if(resolved)
+			return;
+		resolved = true;
+		
+		chart.setPassageTracking(false);
+		try
+		{
+			for(int i=0; i<rooms.size(); i++)
+				rooms.get(i).setTilePosition(positions.get(i));
+		}
+		finally
+		{
+			chart.setPassageTracking(true);
+		}
+		entryTiles.forEach(BlueprintRoom::setEntryTile);
+		chart.restorePassages(passages);
+	}
+}
@@ -0,0 +1,84 @@
+package com.lying.blueprint;
+
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+import com.lying.grid.GridTile;
+
+/**
+ * Raster of the tiles occupied by or adjacent to any room in a blueprint, updated incrementally as rooms move.<br>
+ * Each tile holds a count rather than a single bit, since rooms may briefly overlap while being rearranged.
+ */
+public class BlueprintOccupancy
+{
+	/** Extra tiles allocated on each side whenever the raster grows */
+	private static final int MARGIN = 16;
+	
+	/** Inclusive bounds of each room's footprint as it was last stamped, as min X, min Y, max X, max Y */
+	private final Map<BlueprintRoom, int[]> stamped = Maps.newIdentityHashMap();
+	private int originX = 0, originY = 0, width = 0, height = 0;
+	private int[] counts = new int[0];
+	
+	public BlueprintOccupancy(Blueprint chart)
+	{
+		chart.forEach(this::onRoomMoved);
+	}
+	
+	/** Returns true if the given tile is occupied by or adjacent to any room */
+	public boolean isOccupied(GridTile tile) { return isOccupied(tile.x, tile.y); }
+	
+	public boolean isOccupied(int x, int y)
+	{
+		x -= originX;
+		y -= originY;
+		return x >= 0 && y >= 0 && x < width && y < height && counts[x + y * width] > 0;
+	}
+	
+	/** Removes the previous footprint of the given room and stamps its current one */
+	public void onRoomMoved(BlueprintRoom room)
+	{
+		int[] previous = stamped.remove(room);
+		if(previous != null)
+			stamp(previous, -1);
+		
+		GridTile min = room.tileMin(), max = room.tileMax();
+		int[] bounds = new int[] {min.x, min.y, max.x, max.y};
+		ensureCapacity(min.x - 1, min.y - 1, max.x + 1, max.y + 1);
+		stamp(bounds, 1);
+		stamped.put(room, bounds);
+	}
+	
+	/** Adds the given value to every tile within the bounds dilated by one tile, excluding the corners as per {@link BlueprintRoom#occupiesOrIsAdjacent} */
+	private void stamp(int[] bounds, int value)
+	{
+		final int minX = bounds[0] - 1, minY = bounds[1] - 1, maxX = bounds[2] + 1, maxY = bounds[3] + 1;
+		for(int y=minY; y<=maxY; y++)
+		{
+			final boolean edge = y == minY || y == maxY;
+			final int row = (y - originY) * width - originX;
+			for(int x=(edge ? minX + 1 : minX); x<=(edge ? maxX - 1 : maxX); x++)
+				counts[row + x] += value;
+		}
+	}
+	
+	private void ensureCapacity(int minX, int minY, int maxX, int maxY)
+	{
+		if(minX >= originX && minY >= originY && maxX < originX + width && maxY < originY + height)
+			return;
+		
+		int newOriginX = Math.min(minX, width > 0 ? originX : minX) - MARGIN;
+		int newOriginY = Math.min(minY, height > 0 ? originY : minY) - MARGIN;
+		int newWidth = Math.max(maxX, width > 0 ? originX + width - 1 : maxX) + MARGIN + 1 - newOriginX;
+		int newHeight = Math.max(maxY, height > 0 ? originY + height - 1 : maxY) + MARGIN + 1 - newOriginY;
+		
+		int[] resized = new int[newWidth * newHeight];
+		for(int y=0; y<height; y++)
+			System.arraycopy(counts, y * width, resized, (y + originY - newOriginY) * newWidth + (originX - newOriginX), width);
+		
+		counts = resized;
+		originX = newOriginX;
+		originY = newOriginY;
+		width = newWidth;
+		height = newHeight;
+	}
+}
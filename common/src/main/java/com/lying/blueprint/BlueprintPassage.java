@@ -1,7 +1,9 @@
 package com.lying.blueprint;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.function.Predicate;
 
 import org.jetbrains.annotations.Nullable;
@@ -28,6 +30,8 @@ import com.lying.worldgen.tile.DefaultTiles;
 import com.lying.worldgen.tile.RotationSupplier;
 import com.lying.worldgen.tile.Tile;
 
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.BlockRotation;
 import net.minecraft.util.math.BlockPos;
@@ -49,6 +53,7 @@ public class BlueprintPassage
 	private Box2f box;
 	
 	private List<GridTile> tilesCached = Lists.newArrayList();
+	private LongSet tileKeys = new LongOpenHashSet();
 	private Optional<GridTile> startTile = Optional.empty();
 	
 	private boolean hasFailures = false;
@@ -70,6 +75,24 @@ public class BlueprintPassage
 		children.add(b);
 	}
 	
+	/** Creates a copy of the given passage between the given rooms, retaining its cached tiles */
+	private BlueprintPassage(BlueprintPassage passage, BlueprintRoom parentIn, List<BlueprintRoom> childrenIn)
+	{
+		parent = parentIn;
+		children.addAll(childrenIn);
+		box = passage.box;
+		tilesCached.addAll(passage.tilesCached);
+		tileKeys.addAll(passage.tileKeys);
+		startTile = passage.startTile;
+		hasFailures = passage.hasFailures;
+	}
+	
+	/** Returns a copy of this passage connecting the equivalent rooms in the given set */
+	public BlueprintPassage copyFor(Map<UUID, BlueprintRoom> rooms)
+	{
+		return new BlueprintPassage(this, rooms.get(parent.uuid()), children.stream().map(c -> rooms.get(c.uuid())).toList());
+	}
+	
 	public BlueprintRoom parent() { return parent; }
 	
 	public List<BlueprintRoom> children() { return children; }
@@ -84,6 +107,13 @@ public class BlueprintPassage
 		return tilesCached;
 	}
 	
+	/** Returns true if the given tile is part of this passage */
+	public boolean contains(GridTile tile)
+	{
+		tiles();
+		return tileKeys.contains(tile.asLong());
+	}
+	
 	public void cacheTiles()
 	{
 		/**
@@ -93,6 +123,7 @@ public class BlueprintPassage
 		 * * Select resulting network with fewest tiles
 		 */
 		tilesCached.clear();
+		tileKeys.clear();
 		startTile = Optional.empty();
 		errorLog.clear();
 		errorLog.info("Calculating passageway from {} with {} children", parent, children.size());
@@ -197,7 +228,7 @@ public class BlueprintPassage
 				return PathingResult.failure("No viable doorways found");
 			
 			errorLog.info(" * {} doors available to join to {}", doors.size(), child);
-			BoundTilePair boundPair = GridPathing.findBestCandidatesToJoin(tiles, doors, walkable);
+			BoundTilePair boundPair = GridPathing.findBestJoin(tiles, doors, walkable);
 			if(boundPair == null)
 				return PathingResult.failure("No viable pairings");
 			if(!boundPair.walkable() || boundPair.route().isFailure())
@@ -216,7 +247,7 @@ public class BlueprintPassage
 	
 	protected void cacheTile(GridTile tile)
 	{
-		if(tilesCached.stream().noneMatch(tile::equals))
+		if(tileKeys.add(tile.asLong()))
 		{
 			tilesCached.add(tile);
 			
@@ -280,11 +311,8 @@ public class BlueprintPassage
 	/** Returns true if any tile in this passage intersects or is adjacent to any tile in the other passage */
 	public boolean intersects(BlueprintPassage other)
 	{
-		final List<GridTile> otherTiles = other.tiles();
-		return 
-				tiles().stream().anyMatch(l -> 
-					otherTiles.stream()
-						.anyMatch(l::isAdjacentOrSame));
+		other.tiles();
+		return BlueprintRoom.touchesAny(tiles(), other.tileKeys);
 	}
 	
 	/** Returns true if any of my tiles are adjacent to any of their tiles */
@@ -338,6 +366,16 @@ public class BlueprintPassage
 	}
 	
 	public void generate(BlockPos origin, ServerWorld world, Random rand)
+	{
+		solve(rand).ifPresent(map -> map.generate(origin, world));
+	}
+	
+	/**
+	 * Solves and finalises the tile map of this passage, without modifying the world.<br>
+	 * This may be performed off the server thread, concurrently with other passages.
+	 * @return The finalised map, or an empty optional if this passage has no starting doorway
+	 */
+	public Optional<BlueprintTileGrid> solve(Random rand)
 	{
 		BlueprintTileGrid map = BlueprintTileGrid.fromGraphGrid(asTiles(), PASSAGE_HEIGHT);
 		
@@ -345,7 +383,7 @@ public class BlueprintPassage
 		final GraphTileGrid parent = parent().tileGrid();
 		GridTile doorGrid = getInitialTile();
 		if(doorGrid == null)
-			return;
+			return Optional.empty();
 		
 		BlockPos doorPos = new BlockPos(doorGrid.x, 1, doorGrid.y);
 		map.put(doorPos.down(), CDTiles.instance().getElse(DefaultTiles.ID_PRISTINE_FLOOR, CDTiles.STONE));
@@ -378,6 +416,6 @@ public class BlueprintPassage
 				break;
 			}
 		
-		map.generate(origin, world);
+		return Optional.of(map);
 	}
 }
@@ -18,7 +18,10 @@ import com.lying.utility.geometry.AbstractBox2f;
 import com.lying.utility.geometry.Box2f;
 import com.lying.worldgen.tile.Tile;
 
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import net.minecraft.util.math.Box;
+import net.minecraft.util.math.Direction;
 import net.minecraft.util.math.MathHelper;
 
 public class BlueprintRoom
@@ -36,6 +39,8 @@ public class BlueprintRoom
 	
 	private Optional<List<GridTile>> tiles = Optional.empty();
 	private Optional<GraphTileGrid> tileGrid = Optional.empty();
+	/** Packed positions of all occupied tiles, for constant-time membership checks */
+	private Optional<LongSet> tileKeys = Optional.empty();
 	
 	public BlueprintRoom(UUID idIn, RoomMetadata termIn, List<UUID> childLinksIn, Optional<UUID> parentLinksIn)
 	{
@@ -49,6 +54,8 @@ public class BlueprintRoom
 	
 	public boolean equals(Object obj) { return obj instanceof BlueprintRoom && ((BlueprintRoom)obj).id.equals(id); }
 	
+	public int hashCode() { return id.hashCode(); }
+	
 	public String toString()
 	{
 		Vector2i size = metadata.size().div(GRID_SIZE);
@@ -65,9 +72,14 @@ public class BlueprintRoom
 	
 	public void attachToBlueprint(Blueprint blueprint) { this.blueprint = Optional.of(blueprint); }
 	
+	/** Returns a check for tiles that are neither occupied by nor adjacent to any room in the blueprint */
 	public Predicate<GridTile> getExclusionCheck()
 	{
-		return blueprint.isPresent() ? t -> this.blueprint.get().stream().noneMatch(r -> r.occupiesOrIsAdjacent(t)) : Predicates.alwaysTrue();
+		if(blueprint.isEmpty())
+			return Predicates.alwaysTrue();
+		
+		final BlueprintOccupancy occupancy = blueprint.get().occupancy();
+		return t -> !occupancy.isOccupied(t);
 	}
 	
 	public RoomMetadata metadata() { return metadata; }
@@ -90,7 +102,7 @@ public class BlueprintRoom
 	
 	public BlueprintRoom setPosition(int x, int y)
 	{
-		return setTilePosition(new GridTile(Math.floorDiv(x, GRID_SIZE), Math.floorDiv(y, GRID_SIZE)));
+		return setTilePosition(GridTile.of(Math.floorDiv(x, GRID_SIZE), Math.floorDiv(y, GRID_SIZE)));
 	}
 	
 	public BlueprintRoom setTilePosition(GridTile tile)
@@ -98,8 +110,9 @@ public class BlueprintRoom
 		tilePosition = tile;
 		tiles = Optional.empty();
 		tileGrid = Optional.empty();
+		tileKeys = Optional.empty();
 		
-		blueprint.ifPresent(Blueprint::clearPassageCache);
+		blueprint.ifPresent(b -> b.onRoomMoved(this));
 		return this;
 	}
 	
@@ -204,6 +217,17 @@ public class BlueprintRoom
 		return tiles.get();
 	}
 	
+	public LongSet tileKeys()
+	{
+		if(tileKeys.isEmpty())
+		{
+			LongSet keys = new LongOpenHashSet();
+			tiles().forEach(t -> keys.add(t.asLong()));
+			tileKeys = Optional.of(keys);
+		}
+		return tileKeys.get();
+	}
+	
 	public GraphTileGrid tileGrid()
 	{
 		if(tileGrid.isEmpty())
@@ -256,15 +280,15 @@ public class BlueprintRoom
 		// Horizontal sides
 		for(int x=min.x+1; x<max.x; x++)
 		{
-			doors.add(new GridTile(x, min.y - 1));
-			doors.add(new GridTile(x, max.y + 1));
+			doors.add(GridTile.of(x, min.y - 1));
+			doors.add(GridTile.of(x, max.y + 1));
 		}
 		
 		// Vertical sides
 		for(int y=min.y+1; y<max.y; y++)
 		{
-			doors.add(new GridTile(min.x - 1, y));
-			doors.add(new GridTile(max.x + 1, y));
+			doors.add(GridTile.of(min.x - 1, y));
+			doors.add(GridTile.of(max.x + 1, y));
 		}
 		
 		return doors;
@@ -276,10 +300,30 @@ public class BlueprintRoom
 		return bounds.intersects(boundsB) || boundsB.intersects(bounds);
 	}
 	
+	/** Returns true if any tile of this room is adjacent to or the same as any tile of the other room */
 	public boolean intersects(BlueprintRoom other)
 	{
-		List<GridTile> myTiles = tiles();
-		return other.tiles().stream().anyMatch(p2 -> myTiles.stream().anyMatch(p2::isAdjacentOrSame));
+		// Rooms more than one tile apart on either axis cannot be adjacent
+		GridTile min = tileMin(), max = tileMax(), otherMin = other.tileMin(), otherMax = other.tileMax();
+		if(otherMin.x > max.x + 1 || otherMax.x < min.x - 1 || otherMin.y > max.y + 1 || otherMax.y < min.y - 1)
+			return false;
+		
+		return touchesAny(tiles(), other.tileKeys());
+	}
+	
+	/** Returns true if any of the given tiles is within one orthogonal step of any of the given packed positions */
+	public static boolean touchesAny(List<GridTile> tiles, LongSet keys)
+	{
+		for(GridTile tile : tiles)
+		{
+			long key = tile.asLong();
+			if(keys.contains(key))
+				return true;
+			for(Direction face : Direction.Type.HORIZONTAL)
+				if(keys.contains(GridTile.offset(key, face)))
+					return true;
+		}
+		return false;
 	}
 	
 	public boolean hasChildren() { return !childLinks.isEmpty(); }
@@ -0,0 +1,115 @@
+package com.lying.blueprint;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.google.common.collect.Lists;
+import com.lying.generation.GenerationContext;
+import com.lying.generation.GenerationScheduler;
+import com.lying.grid.BlueprintTileGrid;
+import com.lying.utility.logging.DebugLogger;
+
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.random.Random;
+
+/**
+ * The solved tile maps of every room and passage in a blueprint, ready to be placed in the world.<br>
+ * Solving is performed concurrently on the generation workers and without modifying the world, so that only placement needs to occur on the server thread.
+ */
+public class BlueprintTiles
+{
+	public static final DebugLogger LOGGER = Blueprint.LOGGER;
+	
+	private final List<SolvedRoom> rooms;
+	private final List<BlueprintPassage> passages;
+	private final List<Optional<BlueprintTileGrid>> passageMaps;
+	
+	private BlueprintTiles(List<SolvedRoom> roomsIn, List<BlueprintPassage> passagesIn, List<Optional<BlueprintTileGrid>> passageMapsIn)
+	{
+		rooms = roomsIn;
+		passages = passagesIn;
+		passageMaps = passageMapsIn;
+	}
+	
+	/** Solved rooms, in the same order as the blueprint */
+	public List<SolvedRoom> rooms() { return rooms; }
+	
+	/** The passages that were solved, in the order of {@link #passageMaps} */
+	public List<BlueprintPassage> passages() { return passages; }
+	
+	/** Solved passage maps, empty where a passage has no starting doorway */
+	public List<Optional<BlueprintTileGrid>> passageMaps() { return passageMaps; }
+	
+	/** Solves the tile maps of all rooms and passages in the given blueprint */
+	public static BlueprintTiles solve(Blueprint chart, @Nullable ServerWorld world, GenerationContext context)
+	{
+		return solve(chart, world, context, true, true);
+	}
+	
+	/**
+	 * Solves the tile maps of the rooms and/or passages in the given blueprint
+	 * @param world The world the dungeon will be placed in, or null to solve without applying room content
+	 */
+	public static BlueprintTiles solve(Blueprint chart, @Nullable ServerWorld world, GenerationContext context, boolean solveRooms, boolean solvePassages)
+	{
+		final long time = System.currentTimeMillis();
+		
+		// Resolve all lazily-cached state beforehand, so that concurrent tasks only ever read from the blueprint
+		final List<BlueprintPassage> passages = List.copyOf(chart.passages());
+		passages.forEach(BlueprintPassage::tiles);
+		chart.forEach(BlueprintRoom::tileGrid);
+		
+		List<Callable<SolvedRoom>> roomTasks = Lists.newArrayList();
+		if(solveRooms)
+			for(int i=0; i<chart.size(); i++)
+			{
+				final BlueprintRoom room = chart.get(i);
+				final Random rand = context.forRoom(i);
+				roomTasks.add(() -> new SolvedRoom(room, room.metadata().type().solve(world, room, passages, rand), rand));
+			}
+		
+		List<Callable<Optional<BlueprintTileGrid>>> passageTasks = Lists.newArrayList();
+		if(solvePassages)
+			for(int i=0; i<passages.size(); i++)
+			{
+				final BlueprintPassage passage = passages.get(i);
+				final Random rand = context.forPassage(i);
+				passageTasks.add(() -> passage.solve(rand));
+			}
+		
+		final ForkJoinPool pool = GenerationScheduler.workers();
+		List<Future<Optional<BlueprintTileGrid>>> passageResults = Lists.newArrayList();
+		passageTasks.forEach(task -> passageResults.add(pool.submit(task)));
+		List<Future<SolvedRoom>> roomResults = Lists.newArrayList();
+		roomTasks.forEach(task -> roomResults.add(pool.submit(task)));
+		
+		List<SolvedRoom> rooms = Lists.newArrayList();
+		roomResults.forEach(result -> rooms.add(join(result)));
+		List<Optional<BlueprintTileGrid>> passageMaps = Lists.newArrayList();
+		passageResults.forEach(result -> passageMaps.add(join(result)));
+		
+		LOGGER.info(" # Solved {} room and {} passage tile maps in {}ms", rooms.size(), passageMaps.size(), System.currentTimeMillis() - time);
+		return new BlueprintTiles(rooms, solvePassages ? passages : List.of(), passageMaps);
+	}
+	
+	private static <T> T join(Future<T> result)
+	{
+		try
+		{
+			return result.get();
+		}
+		catch(InterruptedException | ExecutionException e)
+		{
+			throw new IllegalStateException("Error while solving blueprint tiles", e);
+		}
+	}
+	
+	/** The solved map of a room, along with the random it was solved with so that post-processing continues from the same sequence */
+	public static record SolvedRoom(BlueprintRoom room, BlueprintTileGrid map, Random rand) { }
+}
@@ -4,12 +4,16 @@ import static com.lying.reference.Reference.ModInfo.translate;
 import static net.minecraft.server.command.CommandManager.argument;
 import static net.minecraft.server.command.CommandManager.literal;
 
+import java.util.Collection;
+import java.util.Optional;
+
 import org.slf4j.Logger;
 
 import com.lying.CyclicDungeons;
 import com.lying.DungeonBuilder;
 import com.lying.blueprint.Blueprint;
 import com.lying.blueprint.BlueprintRoom;
+import com.lying.generation.GenerationJob;
 import com.lying.grammar.CDGrammar;
 import com.lying.grammar.GrammarPhrase;
 import com.lying.grammar.GrammarRoom;
@@ -20,6 +24,7 @@ import com.lying.reference.Reference;
 import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.context.CommandContext;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.exceptions.DynamicCommandExceptionType;
 import com.mojang.brigadier.exceptions.SimpleCommandExceptionType;
 
 import dev.architectury.event.events.common.CommandRegistrationEvent;
@@ -39,6 +44,8 @@ public class CDCommands
 	private static final SimpleCommandExceptionType GRAPH_FAILED_EXCEPTION = make("graph_failed");
 	private static final SimpleCommandExceptionType SCRUNCH_FAILED_EXCEPTION = make("scrunch_failed");
 	private static final SimpleCommandExceptionType GENERATION_FAILED_EXCEPTION = make("generation_failed");
+	private static final SimpleCommandExceptionType QUEUE_FULL_EXCEPTION = make("generation_queue_full");
+	private static final DynamicCommandExceptionType CANCEL_FAILED_EXCEPTION = new DynamicCommandExceptionType(id -> translate("command", "cancel.failed", id));
 	private static final Logger LOGGER = CyclicDungeons.LOGGER;
 	
 	private static SimpleCommandExceptionType make(String name)
@@ -67,6 +74,11 @@ public class CDCommands
 					.then(argument("size", IntegerArgumentType.integer(1))
 						.then(argument("position", BlockPosArgumentType.blockPos())
 							.executes(context -> generateInWorld(IntegerArgumentType.getInteger(context, "size"), BlockPosArgumentType.getBlockPos(context, "position"), context.getSource())))))
+				.then(literal("jobs")
+					.executes(context -> listJobs(context.getSource())))
+				.then(literal("cancel")
+					.then(argument("id", IntegerArgumentType.integer(1))
+						.executes(context -> cancelJob(IntegerArgumentType.getInteger(context, "id"), context.getSource()))))
 				);
 		});
 	}
@@ -115,7 +127,28 @@ public class CDCommands
 	
 	private static int generateInWorld(int size, BlockPos position, ServerCommandSource source) throws CommandSyntaxException
 	{
-		DungeonBuilder.instance().generate(position, source.getWorld(), Random.create((position.getX() * position.getX()) + (position.getZ() * position.getZ())));
-		return 15;
+		Optional<GenerationJob> job = DungeonBuilder.instance().generate(position, source.getWorld(), Random.create((position.getX() * position.getX()) + (position.getZ() * position.getZ())), 0);
+		if(job.isEmpty())
+			throw QUEUE_FULL_EXCEPTION.create();
+		source.sendFeedback(() -> translate("command", "generation_queued", job.get().id(), position.toShortString()), true);
+		return job.get().id();
+	}
+	
+	private static int listJobs(ServerCommandSource source)
+	{
+		Collection<GenerationJob> jobs = DungeonBuilder.instance().jobs();
+		if(jobs.isEmpty())
+			source.sendFeedback(() -> translate("command", "jobs.none"), false);
+		else
+			jobs.forEach(job -> source.sendFeedback(() -> translate("command", "jobs.entry", job.id(), job.position().toShortString(), job.stage().name().toLowerCase(), job.stageTime()), false));
+		return jobs.size();
+	}
+	
+	private static int cancelJob(int id, ServerCommandSource source) throws CommandSyntaxException
+	{
+		if(!DungeonBuilder.instance().cancel(id))
+			throw CANCEL_FAILED_EXCEPTION.create(id);
+		source.sendFeedback(() -> translate("command", "cancel.success", id), true);
+		return 1;
 	}
 }
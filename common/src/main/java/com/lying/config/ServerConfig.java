@@ -7,6 +7,15 @@ public class ServerConfig extends Config
 {
 	private static final Properties DEFAULT_SETTINGS = new Properties();
 	
+	private int generationThreads = 2;
+	private int maxQueuedDungeons = 4;
+	private int buildMillisPerTick = 20;
+	private int buildBlocksPerTick = 32768;
+	private boolean parallelScrunch = false;
+	private int parallelOrganiseAttempts = 1;
+	private int patternCacheSize = 0;
+	private int patternCacheVariants = 4;
+	
 	public ServerConfig(String fileIn)
 	{
 		super(fileIn);
@@ -14,18 +23,63 @@ public class ServerConfig extends Config
 	
 	protected Properties getDefaults() { return DEFAULT_SETTINGS; }
 	
+	/** Number of background threads used to calculate dungeon layouts */
+	public int generationThreads() { return Math.max(1, generationThreads); }
+	
+	/** Maximum number of dungeons that may be queued or in progress at any one time */
+	public int maxQueuedDungeons() { return Math.max(1, maxQueuedDungeons); }
+	
+	/** Maximum time in milliseconds spent placing dungeon blocks each tick */
+	public int buildMillisPerTick() { return Math.max(1, buildMillisPerTick); }
+	
+	/** Approximate maximum number of dungeon blocks placed each tick */
+	public int buildBlocksPerTick() { return Math.max(1, buildBlocksPerTick); }
+	
+	/** If true, candidate scrunch moves for rooms at the same depth are evaluated concurrently */
+	public boolean parallelScrunch() { return parallelScrunch; }
+	
+	/** Number of organiser attempts run concurrently on separate copies of a blueprint, or 1 to make attempts one at a time */
+	public int parallelOrganiseAttempts() { return Math.max(1, parallelOrganiseAttempts); }
+	
+	/** Maximum number of distinct room layouts whose solved tile maps are kept for reuse, or 0 to solve every room afresh */
+	public int patternCacheSize() { return Math.max(0, patternCacheSize); }
+	
+	/** Number of solved tile maps kept for each cached room layout, from which each matching room selects one at random */
+	public int patternCacheVariants() { return Math.max(1, patternCacheVariants); }
+	
 	protected void readValues(Properties valuesIn)
 	{
-		
+		generationThreads = parseIntOr(valuesIn.getProperty("GenerationThreads"), 2);
+		maxQueuedDungeons = parseIntOr(valuesIn.getProperty("MaxQueuedDungeons"), 4);
+		buildMillisPerTick = parseIntOr(valuesIn.getProperty("BuildMillisPerTick"), 20);
+		buildBlocksPerTick = parseIntOr(valuesIn.getProperty("BuildBlocksPerTick"), 32768);
+		parallelScrunch = parseBoolOr(valuesIn.getProperty("ParallelScrunch"), false);
+		parallelOrganiseAttempts = parseIntOr(valuesIn.getProperty("ParallelOrganiseAttempts"), 1);
+		patternCacheSize = parseIntOr(valuesIn.getProperty("PatternCacheSize"), 0);
+		patternCacheVariants = parseIntOr(valuesIn.getProperty("PatternCacheVariants"), 4);
 	}
 	
 	protected void writeValues(FileWriter writer)
 	{
-		
+		writeInt(writer, "GenerationThreads", generationThreads);
+		writeInt(writer, "MaxQueuedDungeons", maxQueuedDungeons);
+		writeInt(writer, "BuildMillisPerTick", buildMillisPerTick);
+		writeInt(writer, "BuildBlocksPerTick", buildBlocksPerTick);
+		writeBool(writer, "ParallelScrunch", parallelScrunch);
+		writeInt(writer, "ParallelOrganiseAttempts", parallelOrganiseAttempts);
+		writeInt(writer, "PatternCacheSize", patternCacheSize);
+		writeInt(writer, "PatternCacheVariants", patternCacheVariants);
 	}
 	
 	static
 	{
-		
+		DEFAULT_SETTINGS.setProperty("GenerationThreads", "2");
+		DEFAULT_SETTINGS.setProperty("MaxQueuedDungeons", "4");
+		DEFAULT_SETTINGS.setProperty("BuildMillisPerTick", "20");
+		DEFAULT_SETTINGS.setProperty("BuildBlocksPerTick", "32768");
+		DEFAULT_SETTINGS.setProperty("ParallelScrunch", "0");
+		DEFAULT_SETTINGS.setProperty("ParallelOrganiseAttempts", "1");
+		DEFAULT_SETTINGS.setProperty("PatternCacheSize", "0");
+		DEFAULT_SETTINGS.setProperty("PatternCacheVariants", "4");
 	}
 }
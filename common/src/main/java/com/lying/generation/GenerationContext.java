@@ -0,0 +1,58 @@
+package com.lying.generation;
+
+import net.minecraft.util.math.random.Random;
+import net.minecraft.util.math.random.Xoroshiro128PlusPlusRandom;
+
+/**
+ * Source of deterministic random number generators for a single dungeon, derived from its seed.<br>
+ * Each stage, room, and passage receives its own independent generator, so they may be processed in any order or concurrently without affecting the result.
+ */
+public final class GenerationContext
+{
+	private static final long SALT_STAGE		= 0x5354414745L;
+	private static final long SALT_ROOM			= 0x524F4F4DL;
+	private static final long SALT_PASSAGE		= 0x50415353L;
+	private static final long SALT_ENTRANCE		= 0x454E5452L;
+	
+	private final long seed;
+	
+	private GenerationContext(long seedIn)
+	{
+		seed = seedIn;
+	}
+	
+	public static GenerationContext of(long seed) { return new GenerationContext(seed); }
+	
+	/** Creates a context seeded from the next value of the given random */
+	public static GenerationContext from(Random rand) { return of(rand.nextLong()); }
+	
+	public long seed() { return seed; }
+	
+	/** Returns a new generator for the given stage, always starting from the same state */
+	public Random forStage(GenerationStage stage) { return child(SALT_STAGE, stage.ordinal()); }
+	
+	/** Returns a new generator for the room at the given index within the blueprint */
+	public Random forRoom(int index) { return child(SALT_ROOM, index); }
+	
+	/** Returns a new generator for the passage at the given index within the blueprint */
+	public Random forPassage(int index) { return child(SALT_PASSAGE, index); }
+	
+	/** Returns a new generator for the exterior entrance of the dungeon */
+	public Random forEntrance() { return child(SALT_ENTRANCE, 0); }
+	
+	private Random child(long salt, int index)
+	{
+		return create(mix(seed ^ mix(salt + index * 0x9E3779B97F4A7C15L)));
+	}
+	
+	/** Creates a generator that is safe to use from whichever single thread owns it */
+	public static Random create(long seed) { return new Xoroshiro128PlusPlusRandom(seed); }
+	
+	/** SplitMix64 finaliser, spreading each input bit across the whole output */
+	public static long mix(long value)
+	{
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+}
@@ -0,0 +1,122 @@
+package com.lying.generation;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.lying.blueprint.Blueprint;
+import com.lying.blueprint.BlueprintBuild;
+import com.lying.blueprint.BlueprintTiles;
+import com.lying.grammar.GrammarPhrase;
+import com.lying.worldgen.theme.Theme;
+
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+
+/** A single dungeon being generated, holding its working state between stages */
+public class GenerationJob
+{
+	private final int id;
+	private final int priority;
+	private final BlockPos position;
+	/** Null if the dungeon is only laid out and never built, such as by {@link HeadlessGenerator} */
+	@Nullable
+	private final ServerWorld world;
+	private final Theme theme;
+	private final GenerationContext context;
+	private final long startTime;
+	
+	private final AtomicBoolean cancelled = new AtomicBoolean(false);
+	private volatile GenerationStage stage = GenerationStage.GRAMMAR;
+	private volatile long stageStartTime;
+	private volatile Optional<String> failureReason = Optional.empty();
+	
+	@Nullable
+	protected GrammarPhrase phrase = null;
+	@Nullable
+	protected Blueprint blueprint = null;
+	@Nullable
+	protected BlueprintTiles tiles = null;
+	@Nullable
+	protected BlueprintBuild build = null;
+	
+	public GenerationJob(int idIn, int priorityIn, GrammarPhrase phraseIn, BlockPos positionIn, @Nullable ServerWorld worldIn, Theme themeIn, GenerationContext contextIn)
+	{
+		id = idIn;
+		priority = priorityIn;
+		phrase = phraseIn;
+		position = positionIn;
+		world = worldIn;
+		theme = themeIn;
+		context = contextIn;
+		stageStartTime = startTime = System.currentTimeMillis();
+	}
+	
+	public int id() { return id; }
+	
+	/** Jobs with higher priority have their stages processed first */
+	public int priority() { return priority; }
+	
+	public BlockPos position() { return position; }
+	
+	@Nullable
+	public ServerWorld world() { return world; }
+	
+	public Theme theme() { return theme; }
+	
+	/** Source of the deterministic randoms used by each stage of this dungeon */
+	public GenerationContext context() { return context; }
+	
+	public long startTime() { return startTime; }
+	
+	public GenerationStage stage() { return stage; }
+	
+	/** Milliseconds spent in the current stage so far */
+	public long stageTime() { return System.currentTimeMillis() - stageStartTime; }
+	
+	@Nullable
+	public GrammarPhrase phrase() { return phrase; }
+	
+	@Nullable
+	public Blueprint blueprint() { return blueprint; }
+	
+	public void setBlueprint(Blueprint blueprintIn) { blueprint = blueprintIn; }
+	
+	/** The solved tile maps of this dungeon, if they have been calculated */
+	@Nullable
+	public BlueprintTiles tiles() { return tiles; }
+	
+	public void setTiles(BlueprintTiles tilesIn) { tiles = tilesIn; }
+	
+	/** The in-progress construction of this dungeon, if it has begun */
+	@Nullable
+	public BlueprintBuild build() { return build; }
+	
+	public void setBuild(BlueprintBuild buildIn) { build = buildIn; }
+	
+	protected void setStage(GenerationStage stageIn)
+	{
+		stage = stageIn;
+		stageStartTime = System.currentTimeMillis();
+	}
+	
+	/** Halts generation of this dungeon at the next opportunity */
+	public void cancel()
+	{
+		if(!stage.isTerminal())
+			cancelled.set(true);
+	}
+	
+	public boolean isCancelled() { return cancelled.get(); }
+	
+	public void fail(String reason)
+	{
+		failureReason = Optional.of(reason);
+		setStage(GenerationStage.FAILED);
+	}
+	
+	public String failureReason() { return failureReason.orElse(isCancelled() ? "Cancelled" : "NULL"); }
+	
+	public String toString() { return "#"+id+" at "+position.toShortString()+" ("+stage.name().toLowerCase()+")"; }
+}
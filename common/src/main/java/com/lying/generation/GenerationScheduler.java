@@ -0,0 +1,266 @@
+package com.lying.generation;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import com.lying.CyclicDungeons;
+
+import net.minecraft.server.world.ServerWorld;
+
+/**
+ * Bounded, prioritised scheduler for dungeon generation.<br>
+ * Each {@link GenerationStage} of a job is submitted as its own task, so jobs can be cancelled between stages
+ * and higher priority jobs can overtake lower priority ones. Stages that must run on the server thread are
+ * held until {@link #tick(ServerWorld)} is called for the job's world.
+ */
+public class GenerationScheduler
+{
+	public static final Logger LOGGER = CyclicDungeons.LOGGER;
+	private static final AtomicInteger THREAD_INDEX = new AtomicInteger(0);
+	private static final ThreadFactory THREAD_FACTORY = task ->
+	{
+		Thread thread = new Thread(task, "CyclicDungeons-Generation-"+THREAD_INDEX.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	};
+	private static final AtomicInteger WORKER_INDEX = new AtomicInteger(0);
+	private static final ForkJoinPool.ForkJoinWorkerThreadFactory WORKER_FACTORY = pool ->
+	{
+		ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+		thread.setName("CyclicDungeons-Worker-"+WORKER_INDEX.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	};
+	
+	/** Pool shared by the concurrent parts of individual stages, see {@link #workers()} */
+	@Nullable
+	private static ForkJoinPool workers = null;
+	
+	/** Performs some or all of the given stage of the given job */
+	private final BiFunction<GenerationJob, GenerationStage, StageResult> processor;
+	
+	/** All jobs that have not yet finished, in order of submission */
+	private final Map<Integer, GenerationJob> jobs = new ConcurrentSkipListMap<>();
+	/** Jobs waiting for their next stage to be performed on the server thread */
+	private final Queue<GenerationJob> mainThreadQueue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger nextId = new AtomicInteger(0);
+	private final AtomicLong sequence = new AtomicLong(0);
+	
+	/** Orders jobs by descending priority, then by order of submission */
+	private static final Comparator<GenerationJob> PRIORITY_ORDER = Comparator.comparingInt(GenerationJob::priority).reversed().thenComparingInt(GenerationJob::id);
+	
+	@Nullable
+	private ThreadPoolExecutor executor = null;
+	private int capacity = 1;
+	
+	public GenerationScheduler(BiFunction<GenerationJob, GenerationStage, StageResult> processorIn)
+	{
+		processor = processorIn;
+	}
+	
+	/**
+	 * Starts the worker threads of this scheduler
+	 * @param threads The number of background threads to run stages on
+	 * @param capacityIn The maximum number of jobs that can be queued or in progress at once
+	 */
+	public synchronized void start(int threads, int capacityIn)
+	{
+		if(executor != null)
+			shutdown();
+		
+		capacity = Math.max(1, capacityIn);
+		executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), THREAD_FACTORY);
+		executor.allowCoreThreadTimeOut(true);
+		LOGGER.info(" # Dungeon generation scheduler started with {} threads, capacity {}", threads, capacity);
+	}
+	
+	/**
+	 * Returns the pool that stages split their own work across, such as tile solving or parallel organisation.<br>
+	 * It is sized from the configured number of generation threads and shared by all jobs, so that these stages
+	 * stay within the same bound as the scheduler instead of competing for the common pool.
+	 */
+	public static synchronized ForkJoinPool workers()
+	{
+		final int threads = CyclicDungeons.config.generationThreads();
+		if(workers == null || workers.isShutdown() || workers.getParallelism() != threads)
+		{
+			// Tasks already submitted to a previous pool are still completed
+			if(workers != null)
+				workers.shutdown();
+			workers = new ForkJoinPool(threads, WORKER_FACTORY, null, false);
+		}
+		return workers;
+	}
+	
+	public boolean isRunning() { return executor != null && !executor.isShutdown(); }
+	
+	/** Cancels all outstanding jobs and stops the worker threads */
+	public synchronized void shutdown()
+	{
+		if(executor == null)
+			return;
+		
+		jobs.values().forEach(GenerationJob::cancel);
+		executor.shutdownNow();
+		try
+		{
+			if(!executor.awaitTermination(5L, TimeUnit.SECONDS))
+				LOGGER.warn(" ? Dungeon generation threads did not stop in time");
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		
+		if(!jobs.isEmpty())
+			LOGGER.info(" # Dropped {} unfinished dungeon(s) on shutdown", jobs.size());
+		jobs.clear();
+		mainThreadQueue.clear();
+		executor = null;
+	}
+	
+	/**
+	 * Adds a new job to the scheduler if there is room for it
+	 * @param factory Function creating the job from its assigned ID
+	 * @return The submitted job, or an empty optional if the scheduler is full or not running
+	 */
+	public synchronized Optional<GenerationJob> submit(IntFunction<GenerationJob> factory)
+	{
+		if(!isRunning() || jobs.size() >= capacity)
+			return Optional.empty();
+		
+		GenerationJob job = factory.apply(nextId.incrementAndGet());
+		jobs.put(job.id(), job);
+		enqueue(job);
+		return Optional.of(job);
+	}
+	
+	/** Returns true if no further jobs can be accepted at present */
+	public boolean isFull() { return jobs.size() >= capacity; }
+	
+	public int capacity() { return capacity; }
+	
+	/** Returns all unfinished jobs, in order of submission */
+	public Collection<GenerationJob> jobs() { return List.copyOf(jobs.values()); }
+	
+	/** Cancels the job with the given ID, returning true if it existed */
+	public boolean cancel(int id)
+	{
+		GenerationJob job = jobs.get(id);
+		if(job == null)
+			return false;
+		
+		job.cancel();
+		return true;
+	}
+	
+	/** Performs any pending server-thread stages of jobs in the given world */
+	public void tick(ServerWorld world)
+	{
+		// Jobs with pending work are re-added to the queue, so only process those present at the start of the tick
+		List<GenerationJob> pending = mainThreadQueue.stream().filter(job -> job.world() == world).sorted(PRIORITY_ORDER).toList();
+		pending.forEach(job -> 
+		{
+			mainThreadQueue.remove(job);
+			process(job);
+		});
+	}
+	
+	/** Schedules the current stage of the given job on the appropriate thread */
+	private void enqueue(GenerationJob job)
+	{
+		if(job.stage().isTerminal())
+		{
+			jobs.remove(job.id());
+			return;
+		}
+		
+		if(job.stage().isMainThread())
+			mainThreadQueue.add(job);
+		else
+		{
+			ThreadPoolExecutor pool = executor;
+			if(pool == null || pool.isShutdown())
+				jobs.remove(job.id());
+			else
+				pool.execute(new StageTask(job, sequence.getAndIncrement()));
+		}
+	}
+	
+	private void process(GenerationJob job)
+	{
+		final GenerationStage stage = job.stage();
+		if(job.isCancelled())
+		{
+			LOGGER.info(" # Dungeon generation {} cancelled before {}", job.id(), stage.name().toLowerCase());
+			job.fail("Cancelled");
+			jobs.remove(job.id());
+			return;
+		}
+		
+		StageResult result;
+		try
+		{
+			result = processor.apply(job, stage);
+		}
+		catch(Exception e)
+		{
+			LOGGER.error(" # Exception during {} stage of dungeon generation {}", stage.name().toLowerCase(), job.id(), e);
+			result = StageResult.FAILED;
+		}
+		
+		if(result == StageResult.FAILED || job.isCancelled())
+		{
+			if(job.stage() != GenerationStage.FAILED)
+				job.fail(job.isCancelled() ? "Cancelled" : "Failed during "+stage.name().toLowerCase());
+			LOGGER.error(" # Dungeon generation {} at {} stopped: {}", job.id(), job.position().toShortString(), job.failureReason());
+			jobs.remove(job.id());
+			return;
+		}
+		
+		if(result == StageResult.DONE)
+			job.setStage(stage.next());
+		enqueue(job);
+	}
+	
+	private class StageTask implements Runnable, Comparable<StageTask>
+	{
+		private final GenerationJob job;
+		private final long order;
+		
+		public StageTask(GenerationJob jobIn, long orderIn)
+		{
+			job = jobIn;
+			order = orderIn;
+		}
+		
+		public void run() { process(job); }
+		
+		public int compareTo(StageTask other)
+		{
+			// Higher priority first, then first-come first-served
+			if(job.priority() != other.job.priority())
+				return job.priority() > other.job.priority() ? -1 : 1;
+			return Long.compare(order, other.order);
+		}
+	}
+}
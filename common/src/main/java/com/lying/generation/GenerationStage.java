@@ -0,0 +1,40 @@
+package com.lying.generation;
+
+/** Discrete steps of dungeon generation, in the order they are applied */
+public enum GenerationStage
+{
+	/** Populating the initial phrase with grammar terms */
+	GRAMMAR(false),
+	/** Converting the phrase to a blueprint and selecting room sizes */
+	SIZING(false),
+	/** Arranging rooms in 2D space */
+	ORGANISE(false),
+	/** Reducing passage lengths */
+	COLLAPSE(false),
+	/** Solving the tile map of each room and passage */
+	TILES(false),
+	/** Placing the finished dungeon in the world */
+	BUILD(true),
+	/** Generation completed successfully */
+	COMPLETE(true),
+	/** Generation stopped, either by error or by cancellation */
+	FAILED(true);
+	
+	private final boolean mainThread;
+	
+	private GenerationStage(boolean mainThreadIn)
+	{
+		mainThread = mainThreadIn;
+	}
+	
+	/** Returns true if this stage must be performed on the server thread */
+	public boolean isMainThread() { return mainThread; }
+	
+	/** Returns true if no further work will be done after this stage */
+	public boolean isTerminal() { return this == COMPLETE || this == FAILED; }
+	
+	public GenerationStage next()
+	{
+		return isTerminal() ? this : values()[ordinal() + 1];
+	}
+}
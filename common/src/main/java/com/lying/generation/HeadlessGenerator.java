@@ -0,0 +1,291 @@
+package com.lying.generation;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+
+import com.google.common.collect.Lists;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.lying.CyclicDungeons;
+import com.lying.blueprint.Blueprint;
+import com.lying.blueprint.BlueprintPassage;
+import com.lying.blueprint.BlueprintRoom;
+import com.lying.blueprint.BlueprintTiles;
+import com.lying.blueprint.BlueprintTiles.SolvedRoom;
+import com.lying.config.ServerConfig;
+import com.lying.data.ReloadListener;
+import com.lying.grammar.CDGrammar;
+import com.lying.grammar.GrammarPhrase;
+import com.lying.grid.BlueprintTileGrid;
+import com.lying.grid.GridTile;
+import com.lying.init.CDTerms;
+import com.lying.init.CDThemes;
+import com.lying.init.CDTileConditions;
+import com.lying.init.CDTileSets;
+import com.lying.init.CDTiles;
+import com.lying.worldgen.theme.Theme;
+import com.lying.worldgen.tile.TilePalette;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.util.JsonHelper;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.random.Random;
+
+/**
+ * Runs the layout stages of dungeon generation without a Minecraft server or client, for profiling and regression testing.<br>
+ * Grammar, sizing, organisation, collapse, and tile solving are performed by {@link LayoutStages} as for an in-world dungeon, but room content is not applied and nothing is built.<br>
+ * Terms, themes, tiles, and tile sets are read from a data directory laid out like a datapack, by default the bundled generated data.<br>
+ * Any data file that cannot be read halts the generator, rather than producing a different layout.<br>
+ * Writes the timings and layout of each run as JSON, to the given file or otherwise to standard output.
+ * <p>
+ * Arguments: {@code [--seed N] [--size N] [--runs N] [--data DIR] [--output FILE] [--config FILE]}
+ */
+public class HeadlessGenerator
+{
+	public static final Logger LOGGER = CyclicDungeons.LOGGER;
+	public static final Gson GSON = (new GsonBuilder()).setPrettyPrinting().disableHtmlEscaping().create();
+	
+	public static final String DEFAULT_DATA = "fabric/src/main/generated/data";
+	
+	public static void main(String[] args) throws IOException
+	{
+		long seed = 0L;
+		int size = 15, runs = 1;
+		String data = DEFAULT_DATA;
+		Optional<String> output = Optional.empty(), config = Optional.empty();
+		for(int i=0; i<args.length; i++)
+		{
+			if(i + 1 >= args.length)
+				throw new IllegalArgumentException("Missing value for argument "+args[i]);
+			
+			final String value = args[++i];
+			switch(args[i - 1])
+			{
+				case "--seed":		seed = Long.parseLong(value); break;
+				case "--size":		size = Integer.parseInt(value); break;
+				case "--runs":		runs = Math.max(1, Integer.parseInt(value)); break;
+				case "--data":		data = value; break;
+				case "--output":	output = Optional.of(value); break;
+				case "--config":	config = Optional.of(value); break;
+				default:
+					throw new IllegalArgumentException("Unrecognised argument "+args[i - 1]);
+			}
+		}
+		
+		bootstrap(Paths.get(data), config);
+		
+		JsonArray results = new JsonArray();
+		for(int i=0; i<runs; i++)
+			results.add(run(seed + i, size).toJson());
+		
+		if(output.isPresent())
+		{
+			Path path = Paths.get(output.get());
+			if(path.getParent() != null)
+				Files.createDirectories(path.getParent());
+			try(Writer writer = Files.newBufferedWriter(path))
+			{
+				GSON.toJson(results, writer);
+			}
+			LOGGER.info(" # Wrote {} layouts to {}", runs, path.toAbsolutePath());
+		}
+		else
+			System.out.println(GSON.toJson(results));
+	}
+	
+	/**
+	 * Initialises the game's registries and loads the generation registries from the given data directory
+	 * @param config Server config file to read, or empty to use the default settings
+	 */
+	public static void bootstrap(Path data, Optional<String> config)
+	{
+		SharedConstants.createGameVersion();
+		Bootstrap.initialize();
+		
+		CyclicDungeons.config = new ServerConfig(config.orElse("config/CyclicDungeonsServer.cfg"));
+		config.ifPresent(c -> CyclicDungeons.config.read());
+		
+		// Loaded in the same order as during mod initialisation
+		CDTileConditions.init();
+		load(CDTiles.headless(), data, CDTiles.FILE_PATH);
+		load(CDTileSets.headless(), data, CDTileSets.FILE_PATH);
+		load(CDTerms.headless(), data, CDTerms.FILE_PATH);
+		load(CDThemes.headless(), data, CDThemes.FILE_PATH);
+	}
+	
+	/** Reads every JSON file under the given path of each namespace of the data directory into the given registry */
+	private static void load(ReloadListener<List<JsonObject>> registry, Path data, String path)
+	{
+		List<JsonObject> objects = Lists.newArrayList();
+		try(Stream<Path> namespaces = Files.list(data))
+		{
+			for(Path namespace : namespaces.sorted().toList())
+			{
+				Path folder = namespace.resolve(path);
+				if(!Files.isDirectory(folder))
+					continue;
+				
+				try(Stream<Path> files = Files.walk(folder))
+				{
+					for(Path file : files.filter(f -> f.toString().endsWith(".json")).sorted().toList())
+						try(Reader reader = Files.newBufferedReader(file))
+						{
+							objects.add(JsonHelper.deserialize(GSON, reader, JsonObject.class));
+						}
+						catch(Exception e)
+						{
+							throw new IllegalStateException("Error while loading "+file.toString(), e);
+						}
+				}
+			}
+		}
+		catch(IOException e)
+		{
+			throw new IllegalStateException("Couldn't read data directory "+data.toAbsolutePath(), e);
+		}
+		
+		registry.apply(objects, null, Runnable::run).join();
+	}
+	
+	/** Generates a single dungeon layout from the given seed, seeded in the same way as the generate command */
+	public static Result run(long seed, int size)
+	{
+		final Random rand = Random.create(seed);
+		final GrammarPhrase phrase = CDGrammar.initialPhrase(size, rand);
+		final GenerationContext context = GenerationContext.from(rand);
+		final Theme theme = CDThemes.instance().get(CDThemes.ID_GENERIC).get();
+		final GenerationJob job = new GenerationJob(0, 0, phrase, BlockPos.ORIGIN, null, theme, context);
+		final Map<GenerationStage, Long> timings = new EnumMap<>(GenerationStage.class);
+		
+		for(GenerationStage stage : LayoutStages.STAGES)
+		{
+			final long time = System.nanoTime();
+			StageResult result = LayoutStages.process(job, stage);
+			timings.put(stage, System.nanoTime() - time);
+			
+			if(result != StageResult.DONE)
+			{
+				LOGGER.error(" # Headless generation of seed {} failed at stage {}", seed, stage.name());
+				return new Result(seed, size, timings, Optional.of(stage), job.blueprint(), null);
+			}
+		}
+		
+		LOGGER.info(" # Headless generation of seed {} complete in {}ms", seed, timings.values().stream().mapToLong(Long::longValue).sum() / 1000000L);
+		return new Result(seed, size, timings, Optional.empty(), job.blueprint(), job.tiles());
+	}
+	
+	/** Hashes the contents of the given tile map by tile registry name, so it can be compared between runs with different tile palettes */
+	public static long checksum(BlueprintTileGrid map)
+	{
+		final long[] fingerprint = map.fingerprint();
+		final int size = fingerprint.length / 2;
+		long hash = 1L;
+		for(int i=0; i<size; i++)
+		{
+			hash = hash * 31L + fingerprint[i];
+			hash = hash * 31L + map.tileOf((int)fingerprint[size + i]).registryName().hashCode();
+		}
+		return hash;
+	}
+	
+	/** The outcome of a single headless run, with the time spent in each stage in nanoseconds */
+	public static record Result(long seed, int size, Map<GenerationStage, Long> timings, Optional<GenerationStage> failedStage, Blueprint blueprint, BlueprintTiles tiles)
+	{
+		public boolean succeeded() { return failedStage.isEmpty(); }
+		
+		public JsonObject toJson()
+		{
+			JsonObject obj = new JsonObject();
+			obj.addProperty("seed", seed);
+			obj.addProperty("size", size);
+			obj.addProperty("success", succeeded());
+			failedStage.ifPresent(stage -> obj.addProperty("failed_stage", stage.name().toLowerCase()));
+			
+			JsonObject times = new JsonObject();
+			long total = 0L;
+			for(GenerationStage stage : LayoutStages.STAGES)
+				if(timings.containsKey(stage))
+				{
+					times.addProperty(stage.name().toLowerCase(), timings.get(stage) / 1000000D);
+					total += timings.get(stage);
+				}
+			times.addProperty("total", total / 1000000D);
+			obj.add("timings_ms", times);
+			
+			if(blueprint == null)
+				return obj;
+			
+			JsonArray rooms = new JsonArray();
+			for(int i=0; i<blueprint.size(); i++)
+			{
+				final BlueprintRoom room = blueprint.get(i);
+				JsonObject entry = new JsonObject();
+				entry.addProperty("index", i);
+				entry.addProperty("term", room.metadata().type().registryName().toString());
+				entry.addProperty("depth", room.metadata().depth());
+				entry.addProperty("parent", room.getParent(blueprint).map(blueprint::indexOf).orElse(-1));
+				entry.add("min", tileToJson(room.tileMin()));
+				entry.add("max", tileToJson(room.tileMax()));
+				if(tiles != null && i < tiles.rooms().size())
+					entry.add("map", mapToJson(tiles.rooms().get(i)));
+				rooms.add(entry);
+			}
+			obj.add("rooms", rooms);
+			
+			JsonArray passages = new JsonArray();
+			final List<BlueprintPassage> passageList = tiles == null ? blueprint.passages() : tiles.passages();
+			for(int i=0; i<passageList.size(); i++)
+			{
+				final BlueprintPassage passage = passageList.get(i);
+				JsonObject entry = new JsonObject();
+				entry.addProperty("parent", blueprint.indexOf(passage.parent()));
+				JsonArray children = new JsonArray();
+				passage.children().forEach(child -> children.add(blueprint.indexOf(child)));
+				entry.add("children", children);
+				entry.addProperty("tiles", passage.size());
+				if(tiles != null && i < tiles.passageMaps().size())
+					tiles.passageMaps().get(i).ifPresent(map -> entry.addProperty("checksum", Long.toHexString(checksum(map))));
+				passages.add(entry);
+			}
+			obj.add("passages", passages);
+			return obj;
+		}
+		
+		private static JsonArray tileToJson(GridTile tile)
+		{
+			JsonArray array = new JsonArray();
+			array.add(tile.x);
+			array.add(tile.y);
+			return array;
+		}
+		
+		private static JsonObject mapToJson(SolvedRoom solved)
+		{
+			final BlueprintTileGrid map = solved.map();
+			JsonObject obj = new JsonObject();
+			obj.addProperty("checksum", Long.toHexString(checksum(map)));
+			
+			JsonObject counts = new JsonObject();
+			final TilePalette palette = map.palette();
+			for(int id=TilePalette.BLANK_ID; id<palette.size(); id++)
+				if(map.tallyOf(id) > 0)
+					counts.addProperty(palette.get(id).registryName().toString(), map.tallyOf(id));
+			obj.add("tiles", counts);
+			return obj;
+		}
+	}
+}
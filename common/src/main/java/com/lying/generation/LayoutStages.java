@@ -0,0 +1,174 @@
+package com.lying.generation;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+
+import com.google.common.collect.Lists;
+import com.lying.CyclicDungeons;
+import com.lying.blueprint.Blueprint;
+import com.lying.blueprint.BlueprintTiles;
+import com.lying.grammar.CDGrammar;
+import com.lying.grammar.GrammarPhrase;
+import com.lying.grammar.RoomMetadata;
+import com.lying.graph.GraphOrganiser;
+import com.lying.graph.GraphScruncher;
+import com.lying.init.CDLoggers;
+
+import net.minecraft.util.math.random.Random;
+
+/**
+ * The stages of dungeon generation that produce its layout without modifying the world, from grammar through to tile solving.<br>
+ * Shared by {@link com.lying.DungeonBuilder} and {@link HeadlessGenerator}, so that both always generate the same layouts.<br>
+ * If the job has no world, room content is not applied during tile solving.
+ */
+public final class LayoutStages
+{
+	public static final Logger LOGGER = CyclicDungeons.LOGGER;
+	private static final GraphOrganiser ORGANISER = GraphOrganiser.Poisson.create();
+	public static final int ORGANISE_ATTEMPTS = 50;
+	
+	/** The stages performed by {@link #process}, in order */
+	public static final List<GenerationStage> STAGES = List.of(GenerationStage.GRAMMAR, GenerationStage.SIZING, GenerationStage.ORGANISE, GenerationStage.COLLAPSE, GenerationStage.TILES);
+	
+	private LayoutStages() { }
+	
+	/** Performs the given layout stage of the given job */
+	public static StageResult process(GenerationJob job, GenerationStage stage)
+	{
+		final Random rand = job.context().forStage(stage);
+		final long time = System.currentTimeMillis();
+		switch(stage)
+		{
+			case GRAMMAR:
+				GrammarPhrase phrase = job.phrase();
+				CDGrammar.generate(phrase, rand);
+				if(phrase == null || phrase.isEmpty())
+				{
+					LOGGER.error(" # Grammar generation failed");
+					return StageResult.FAILED;
+				}
+				LOGGER.info(" # Grammar generation complete in {} ms, {} rooms across {} depths", System.currentTimeMillis() - job.startTime(), phrase.size(), phrase.depth());
+				return StageResult.DONE;
+			case SIZING:
+				Blueprint blueprint = Blueprint.fromGraph(job.phrase());
+				blueprint.forEach(room ->
+				{
+					final RoomMetadata meta = room.metadata();
+					meta.type().prepare(meta, rand);
+				});
+				job.setBlueprint(blueprint);
+				CDLoggers.GRAMMAR.info(" # Room sizes selected");
+				return StageResult.DONE;
+			case ORGANISE:
+				final int batchSize = CyclicDungeons.config.parallelOrganiseAttempts();
+				boolean organised;
+				if(batchSize > 1)
+					organised = organiseParallel(job, rand, batchSize);
+				else
+				{
+					int attempts = 0;
+					do
+					{
+						CDLoggers.PLANAR.info(" - Attempt {} at organising graph", ++attempts);
+						ORGANISER.organise(job.blueprint(), rand);
+					}
+					while(job.blueprint().hasErrors() && attempts < ORGANISE_ATTEMPTS && !job.isCancelled());
+					organised = !job.blueprint().hasErrors();
+				}
+				
+				if(!organised)
+				{
+					LOGGER.error(" # Graph organisation failed");
+					return StageResult.FAILED;
+				}
+				LOGGER.info(" # Graph organisation complete in {}ms", System.currentTimeMillis() - time);
+				return StageResult.DONE;
+			case COLLAPSE:
+				GraphScruncher.collapse(job.blueprint(), job::isCancelled);
+				if(job.blueprint().hasErrors())
+				{
+					LOGGER.error(" # Passage optimisation failed");
+					return StageResult.FAILED;
+				}
+				LOGGER.info(" # Passage optimisation complete in {}ms", System.currentTimeMillis() - time);
+				return StageResult.DONE;
+			case TILES:
+				if(job.blueprint().hasErrors())
+				{
+					LOGGER.error(" # Tile solving failed, blueprint contains errors");
+					return StageResult.FAILED;
+				}
+				job.setTiles(BlueprintTiles.solve(job.blueprint(), job.world(), job.context()));
+				LOGGER.info(" # Tile solving complete in {}ms", System.currentTimeMillis() - time);
+				return StageResult.DONE;
+			default:
+				throw new IllegalArgumentException("Stage "+stage.name()+" does not produce a layout");
+		}
+	}
+	
+	/**
+	 * Runs organiser attempts in concurrent batches on the generation workers, each on its own copy of the job's blueprint with its own random split from the job's.<br>
+	 * The first error-free layout in order of submission is kept, and the remaining attempts are cancelled.
+	 * @return True if an error-free layout was found
+	 */
+	private static boolean organiseParallel(GenerationJob job, Random rand, int batchSize)
+	{
+		final Blueprint original = job.blueprint();
+		final ForkJoinPool pool = GenerationScheduler.workers();
+		int attempts = 0;
+		while(attempts < ORGANISE_ATTEMPTS && !job.isCancelled())
+		{
+			final int batch = Math.min(batchSize, ORGANISE_ATTEMPTS - attempts);
+			CDLoggers.PLANAR.info(" - Attempts {} to {} at organising graph", attempts + 1, attempts + batch);
+			attempts += batch;
+			
+			// Splits are drawn on this thread in a fixed order, so the results do not depend on scheduling
+			List<Future<Blueprint>> results = Lists.newArrayList();
+			for(int i=0; i<batch; i++)
+			{
+				final Blueprint copy = original.snapshot();
+				final Random split = rand.split();
+				results.add(pool.submit(() ->
+				{
+					if(job.isCancelled())
+						return null;
+					
+					ORGANISER.organise(copy, split);
+					return copy;
+				}));
+			}
+			
+			Blueprint best = null;
+			for(Future<Blueprint> result : results)
+			{
+				if(best != null || job.isCancelled())
+				{
+					result.cancel(false);
+					continue;
+				}
+				
+				try
+				{
+					Blueprint layout = result.get();
+					if(layout != null && !layout.hasErrors())
+						best = layout;
+				}
+				catch(InterruptedException | ExecutionException e)
+				{
+					LOGGER.error(" ! Error during organiser attempt: {}", e.getMessage());
+				}
+			}
+			
+			if(best != null)
+			{
+				job.setBlueprint(best);
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,12 @@
+package com.lying.generation;
+
+/** Outcome of a single attempt at performing a {@link GenerationStage} */
+public enum StageResult
+{
+	/** The stage is complete and the job can advance */
+	DONE,
+	/** The stage has further work and should be attempted again later */
+	PENDING,
+	/** The stage failed and generation cannot continue */
+	FAILED;
+}
@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Optional;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.joml.Vector2i;
 
 import com.google.gson.JsonElement;
@@ -17,7 +18,7 @@ import com.lying.grid.GraphTileGrid;
 import com.lying.grid.GridTile;
 import com.lying.init.CDTerms;
 import com.lying.init.CDTiles;
-import com.lying.worldgen.TileGenerator;
+import com.lying.worldgen.TilePatternCache;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.JsonOps;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
@@ -123,6 +124,16 @@ public class GrammarTerm
 	}
 	
 	public boolean generate(BlockPos position, ServerWorld world, BlueprintRoom node, List<BlueprintPassage> passages, Random rand)
+	{
+		return place(position, world, node, solve(world, node, passages, rand), rand);
+	}
+	
+	/**
+	 * Solves and finalises the tile map of the given room, without modifying the world.<br>
+	 * This may be performed off the server thread, concurrently with other rooms.<br>
+	 * If no world is given, room content is not applied.
+	 */
+	public BlueprintTileGrid solve(@Nullable ServerWorld world, BlueprintRoom node, List<BlueprintPassage> passages, Random rand)
 	{
 		BlueprintTileGrid map = BlueprintTileGrid.fromGraphGrid(node.tileGrid(), Blueprint.ROOM_TILE_HEIGHT);
 		RoomMetadata meta = node.metadata();
@@ -132,15 +143,22 @@ public class GrammarTerm
 			// Pre-seed doorways to connecting rooms
 			preseedDoorways(node, map, passages);
 			
-			contentBuilder.applyPreProcessing(node, meta, map, world, rand);
+			if(world != null)
+				contentBuilder.applyPreProcessing(node, meta, map, world, rand);
 			
 			// Fill rest of tileset with WFC generation
-			TileGenerator.generate(map, node.metadata().theme().getTileSet(this), rand);
+			TilePatternCache.generate(map, meta.theme(), this, meta.theme().getTileSet(this), rand);
 		}
 		catch(Exception e) { e.printStackTrace(); }
 		
 		map.finalise(meta.theme(), rand);
-		
+		return map;
+	}
+	
+	/** Places the given solved tile map of the given room into the world, then applies any post-processing */
+	public boolean place(BlockPos position, ServerWorld world, BlueprintRoom node, BlueprintTileGrid map, Random rand)
+	{
+		RoomMetadata meta = node.metadata();
 		if(map.generate(position, world))
 		{
 			Box box = node.worldBox().offset(position);
@@ -165,7 +183,7 @@ public class GrammarTerm
 		map.getBoundaries(Direction.Type.HORIZONTAL.stream().toList()).stream()
 			.filter(t -> 
 			{
-				GridTile tile = new GridTile(t.getX(), t.getZ());
+				GridTile tile = GridTile.of(t.getX(), t.getZ());
 				return connectingPassages.stream().anyMatch(g -> g.containsAdjacent(tile));
 			})
 			.forEach(t -> map.put(t.withY(1), CDTiles.instance().get(CDTiles.ID_PASSAGE_FLAG).orElse(CDTiles.AIR.get())));
@@ -122,7 +122,7 @@ public class RoomMetadata
 		GridTile max = tileMax(GridTile.ZERO);
 		for(int tX = min.x; tX<max.x; tX++)
 			for(int tY = min.y; tY<max.y; tY++)
-				tileFootprint.add(new GridTile(tX, tY));
+				tileFootprint.add(GridTile.of(tX, tY));
 		
 		return this;
 	}
@@ -135,7 +135,7 @@ public class RoomMetadata
 		Vector2i size = tileSize();
 		int tX = Math.floorDiv(size.x, 2);
 		int tY = Math.floorDiv(size.y, 2);
-		return new GridTile(position.x - tX, position.y - tY);
+		return GridTile.of(position.x - tX, position.y - tY);
 	}
 	
 	/** Returns the farthest tile (exclusive) occupied by this room at the given position */
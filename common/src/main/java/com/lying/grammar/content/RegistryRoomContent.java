@@ -40,28 +40,35 @@ public abstract class RegistryRoomContent<T extends IContentEntry> extends RoomC
 			registry.put(id, entry);
 	}
 	
-	public void applyPreProcessing(BlueprintRoom room, RoomMetadata meta, BlueprintTileGrid tileMap, ServerWorld world, Random rand)
+	/** Returns a copy of the registry for the given theme, since rooms of different themes may be processed concurrently */
+	protected synchronized Map<Identifier, T> entriesFor(Theme theme)
 	{
 		registry.clear();
-		buildRegistry(meta.theme());
-		
-		List<Identifier> ids = registry.entrySet().stream()
+		buildRegistry(theme);
+		return Map.copyOf(registry);
+	}
+	
+	public void applyPreProcessing(BlueprintRoom room, RoomMetadata meta, BlueprintTileGrid tileMap, ServerWorld world, Random rand)
+	{
+		final Map<Identifier, T> entries = entriesFor(meta.theme());
+		List<Identifier> ids = entries.entrySet().stream()
 				.filter(entry -> entry.getValue().isApplicableTo(room, meta, meta.theme()))
 				.map(Entry::getKey)
 				.toList();
 		
 		if(!ids.isEmpty())
 		{
-			Identifier id = ids.size() == 1 ? ids.getFirst() : ids.get(world.random.nextInt(ids.size()));
+			Identifier id = ids.size() == 1 ? ids.getFirst() : ids.get(rand.nextInt(ids.size()));
 			meta.setProcessorID(id);
 			CDLoggers.WORLDGEN.info("# Processor selected registry entry {}", id.toString());
-			getEntry(id).ifPresent(entry -> entry.prepare(room, tileMap, world, rand));
+			entries.get(id).prepare(room, tileMap, world, rand);
 		}
 	}
 	
 	public void applyPostProcessing(BlockPos min, BlockPos max, ServerWorld world, BlueprintRoom room, RoomMetadata meta, Random rand)
 	{
+		final Map<Identifier, T> entries = entriesFor(meta.theme());
 		meta.processorID().ifPresent(id -> 
-			registry.get(id).apply(min, max, world, meta, rand));
+			entries.get(id).apply(min, max, world, meta, rand));
 	}
 }
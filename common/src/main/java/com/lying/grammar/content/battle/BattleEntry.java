@@ -48,7 +48,7 @@ public record BattleEntry(Identifier registryName, Battle encounter) implements
 				positions.add(p.toImmutable());
 		});
 		
-		final BlockPos pos = positions.isEmpty() ? min : positions.get(world.random.nextInt(positions.size()));
+		final BlockPos pos = positions.isEmpty() ? min : positions.get(rand.nextInt(positions.size()));
 		world.setBlockState(pos, CDBlocks.ENCOUNTER.get().getDefaultState());
 		
 		Optional<EncounterSpawnerBlockEntity> tile = world.getBlockEntity(pos, CDBlockEntityTypes.ENCOUNTER.get());
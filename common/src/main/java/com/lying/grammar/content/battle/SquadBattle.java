@@ -72,7 +72,7 @@ public class SquadBattle extends Battle
 			int count = 
 					entry.min() == entry.max() ? 
 						entry.min() : 
-						world.random.nextBetween(entry.min(), entry.max());
+						rand.nextBetween(entry.min(), entry.max());
 			
 			if(count > 0)
 				for(int i=0; i<count; i++)
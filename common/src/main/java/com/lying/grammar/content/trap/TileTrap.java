@@ -78,10 +78,10 @@ public class TileTrap extends Trap
 					return tileAt.isPresent() && tileAt.get().isBlank();
 					})
 				.toList());
-		int count = counter.getCount(world.getRandom(), room.metadata().tileSize());
+		int count = counter.getCount(rand, room.metadata().tileSize());
 		while(!blanks.isEmpty() && (counter.isUnlimited() || count-- > 0))
 		{
-			BlockPos pos = blanks.remove(blanks.size() == 1 ? 0 : world.random.nextInt(blanks.size()));
+			BlockPos pos = blanks.remove(blanks.size() == 1 ? 0 : rand.nextInt(blanks.size()));
 			tileMap.put(pos, tile);
 			blanks.removeIf(canExistAt.negate());
 		}
@@ -2,10 +2,7 @@ package com.lying.graph;
 
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
@@ -24,7 +21,8 @@ import com.lying.utility.geometry.AbstractBox2f;
 import com.lying.utility.logging.DebugLogger;
 import com.mojang.datafixers.util.Pair;
 
-import net.minecraft.util.math.Vec3d;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import net.minecraft.util.math.random.Random;
 
 /** Utilities for organising a blueprint, prior to scrunching */
@@ -185,41 +183,41 @@ public abstract class GraphOrganiser
 			// Precalculated offset positions, for immediate-neighbourhood
 			private static List<GridTile> HARD_OFFSETS = Lists.newArrayList
 					(
-						new GridTile(0, 0),
-						new GridTile(-1, -1),
-						new GridTile(0, -1),
-						new GridTile(1, -1),
-						new GridTile(-1, 0),
-						new GridTile(1, 0),
-						new GridTile(-1, 1),
-						new GridTile(0, 1),
-						new GridTile(1, 1)
+						GridTile.of(0, 0),
+						GridTile.of(-1, -1),
+						GridTile.of(0, -1),
+						GridTile.of(1, -1),
+						GridTile.of(-1, 0),
+						GridTile.of(1, 0),
+						GridTile.of(-1, 1),
+						GridTile.of(0, 1),
+						GridTile.of(1, 1)
 					);
 			// Precalculated offset positions, for outer-neighbourhood
 			private static List<GridTile> SOFT_OFFSETS = Lists.newArrayList
 					(
-						new GridTile(-2, -2),
-						new GridTile(-1, -2),
-						new GridTile(0, -2),
-						new GridTile(1, -2),
-						new GridTile(2, -2),
-						new GridTile(2, -1),
-						new GridTile(2, 0),
-						new GridTile(2, 1),
-						new GridTile(2, 2),
-						new GridTile(1, 2),
-						new GridTile(0, 2),
-						new GridTile(-1, 2),
-						new GridTile(-2, 2),
-						new GridTile(-2, 1),
-						new GridTile(-2, 0),
-						new GridTile(-2, -1)
+						GridTile.of(-2, -2),
+						GridTile.of(-1, -2),
+						GridTile.of(0, -2),
+						GridTile.of(1, -2),
+						GridTile.of(2, -2),
+						GridTile.of(2, -1),
+						GridTile.of(2, 0),
+						GridTile.of(2, 1),
+						GridTile.of(2, 2),
+						GridTile.of(1, 2),
+						GridTile.of(0, 2),
+						GridTile.of(-1, 2),
+						GridTile.of(-2, 2),
+						GridTile.of(-2, 1),
+						GridTile.of(-2, 0),
+						GridTile.of(-2, -1)
 					);
 			private static final Point INITIAL = Point.of(GridTile.ZERO, GridTile.ZERO);
 			/** List of points that are still evaluable */
 			private final List<Point> activePoints = Lists.newArrayList(INITIAL);
-			/** Map of background grid tiles to foreground grid tiles */
-			private final Map<GridTile, GridTile> background = new HashMap<>();
+			/** Map of packed background grid tiles to foreground grid tiles, in order of creation */
+			private final Long2ObjectMap<GridTile> background = new Long2ObjectLinkedOpenHashMap<>();
 			
 			final int radius;
 			final double cellLength, diameter;
@@ -236,16 +234,10 @@ public abstract class GraphOrganiser
 			}
 			
 			/** Returns true if the given position in the background grid is occupied */
-			public boolean contains(GridTile vector) { return background.keySet().stream().anyMatch(vector::equals); }
+			public boolean contains(GridTile vector) { return background.containsKey(vector.asLong()); }
 			
 			@Nullable
-			public GridTile get(GridTile key)
-			{
-				for(Entry<GridTile, GridTile> entry : background.entrySet())
-					if(entry.getKey().manhattanDistance(key) == 0)
-						return entry.getValue();
-				return null;
-			}
+			public GridTile get(GridTile key) { return background.get(key.asLong()); }
 			
 			/** Returns all points within this foreground grid */
 			public List<GridTile> values() { return Lists.newArrayList(background.values()); }
@@ -255,10 +247,10 @@ public abstract class GraphOrganiser
 			{
 				int x = (int)Math.floor((double)vector.x / cellLength);
 				int y = (int)Math.floor((double)vector.y / cellLength);
-				return new GridTile(x, y);
+				return GridTile.of(x, y);
 			}
 			
-			protected void log(Point pair) { background.put(pair.getFirst(), pair.getSecond()); }
+			protected void log(Point pair) { background.put(pair.getFirst().asLong(), pair.getSecond()); }
 			
 			public void generateTo(int size, Random rand)
 			{
@@ -277,28 +269,28 @@ public abstract class GraphOrganiser
 				GridTile xForeground = point.getSecond();
 				for(int i=0; i<samples; i++)
 				{
+					// Random direction scaled to between 1 and 2 radii, equivalent to normalising and scaling a vector
 					double dirX = (rand.nextDouble() - 0.5F) * 2;
 					double dirY = (rand.nextDouble() - 0.5F) * 2;
-					Vec3d dir = new Vec3d(dirX, 0, dirY).normalize().multiply(radius * (1 + rand.nextDouble()));
+					double scale = radius * (1 + rand.nextDouble());
+					double length = Math.sqrt(dirX * dirX + dirY * dirY);
+					if(length < 1.0E-5F)
+						dirX = dirY = 0D;
+					else
+					{
+						dirX = (dirX / length) * scale;
+						dirY = (dirY / length) * scale;
+					}
 					
-					final GridTile sampleForeground = new GridTile(xForeground.x + (int)dir.x, xForeground.y + (int)dir.z);
-					if(sampleForeground.y < 0)
+					final int sampleX = xForeground.x + (int)dirX, sampleY = xForeground.y + (int)dirY;
+					if(sampleY < 0)
 						continue;
 					
 					// Check occupancies around background tile
+					final GridTile sampleForeground = GridTile.of(sampleX, sampleY);
 					final GridTile sampleBackground = toBackground(sampleForeground);
-					
-					// Check if the immediate neighbourhood is occupied
-					if(HARD_OFFSETS.stream().anyMatch(o -> contains(sampleBackground.add(o))))
+					if(isObstructed(sampleBackground.asLong(), sampleX, sampleY))
 						continue;
-					// Check if the wider neighbourhood has any points too close
-					else if(SOFT_OFFSETS.stream()
-							.anyMatch(o -> 
-							{
-								GridTile tile = sampleBackground.add(o);
-								return contains(tile) ? get(tile).distance(sampleForeground) < diameter : false;
-							}))
-							continue;
 					
 					Point pair = Point.of(sampleBackground, sampleForeground);
 					activePoints.add(pair);
@@ -311,6 +303,27 @@ public abstract class GraphOrganiser
 					activePoints.remove(point);
 			}
 			
+			/** Returns true if the immediate neighbourhood of the given background tile is occupied, or the wider neighbourhood has any points too close */
+			private boolean isObstructed(long sampleBackground, int sampleX, int sampleY)
+			{
+				for(GridTile offset : HARD_OFFSETS)
+					if(background.containsKey(GridTile.add(sampleBackground, offset.x, offset.y)))
+						return true;
+				
+				final double minDistSq = diameter * diameter;
+				for(GridTile offset : SOFT_OFFSETS)
+				{
+					GridTile point = background.get(GridTile.add(sampleBackground, offset.x, offset.y));
+					if(point == null)
+						continue;
+					
+					double x = point.x - sampleX, y = point.y - sampleY;
+					if(x * x + y * y < minDistSq)
+						return true;
+				}
+				return false;
+			}
+			
 			private static class Point extends Pair<GridTile,GridTile>
 			{
 				protected Point(GridTile first, GridTile second)
@@ -420,12 +433,12 @@ public abstract class GraphOrganiser
 				double rot = Math.toRadians(180D / pop);
 				double cos = Math.cos(rot), sin = Math.sin(rot);
 				
-				GridTile point = new GridTile(radius, 0);
+				GridTile point = GridTile.of(radius, 0);
 				List<GridTile> positions = Lists.newArrayList();
 				for(int i=0; i<pop; i++)
 				{
 					positions.add(point);
-					point = new GridTile(
+					point = GridTile.of(
 							(int)(point.x * cos - point.y * sin),
 							(int)(point.x * sin + point.y * cos)
 							);
@@ -2,16 +2,23 @@ package com.lying.graph;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import org.joml.Vector2i;
 
 import com.google.common.collect.Lists;
+import com.lying.CyclicDungeons;
 import com.lying.blueprint.Blueprint;
 import com.lying.blueprint.Blueprint.ErrorType;
+import com.lying.blueprint.BlueprintMove;
 import com.lying.blueprint.BlueprintPassage;
 import com.lying.blueprint.BlueprintRoom;
+import com.lying.generation.GenerationScheduler;
 import com.lying.grid.GridPathing;
 import com.lying.grid.GridTile;
 import com.lying.grid.PathingResult;
@@ -28,28 +35,38 @@ import net.minecraft.util.math.Direction;
 public class GraphScruncher
 {
 	public static DebugLogger LOGGER = CDLoggers.PLANAR;
-	public static DataLog DATA_LOG = new DataLog();
 	
 	/**
 	 * Applies scrunch algorithm until failure
 	 * @param chart The blueprint to collapse
 	 */
 	public static void collapse(Blueprint chart)
+	{
+		collapse(chart, () -> false);
+	}
+	
+	/**
+	 * Applies scrunch algorithm until failure or until the given condition is met
+	 * @param chart The blueprint to collapse
+	 * @param shouldStop Checked between iterations, halting the collapse early when true
+	 */
+	public static void collapse(Blueprint chart, BooleanSupplier shouldStop)
 	{
 		final int iterationCap = chart.theme().collapseIterationCap();
-		DATA_LOG.info("Applying collapse to {} nodes, cap {}", chart.size(), iterationCap);
+		final DataLog log = new DataLog();
+		log.info("Applying collapse to {} nodes, cap {}", chart.size(), iterationCap);
 		int iterations = iterationCap;
 		final long time = System.currentTimeMillis();
 		int failures = 0;
-		while(iterations-- > 0 && failures < 5)
+		while(iterations-- > 0 && failures < 5 && !shouldStop.getAsBoolean())
 		{
-			if(scrunch(chart))
+			if(scrunch(chart, log))
 				failures = 0;
 			else
 				++failures;
 		}
 		
-		DATA_LOG.info(" # Time to complete collapse operation: {}ms over {} iterations", System.currentTimeMillis() - time, iterationCap - iterations);
+		log.info(" # Time to complete collapse operation: {}ms over {} iterations", System.currentTimeMillis() - time, iterationCap - iterations);
 	}
 	
 	/**
@@ -59,41 +76,97 @@ public class GraphScruncher
 	 */
 	public static boolean scrunch(Blueprint chart)
 	{
-		DATA_LOG.clear();
-		DATA_LOG.info("Applying scrunch to {} nodes", chart.size());
+		return scrunch(chart, new DataLog());
+	}
+	
+	private static boolean scrunch(Blueprint chart, DataLog log)
+	{
+		final boolean parallel = CyclicDungeons.config.parallelScrunch();
+		log.info("Applying scrunch to {} nodes", chart.size());
 		final long time = System.currentTimeMillis();
 		boolean anyMoved = false;
 		for(int i=1; i <= chart.maxDepth(); i++)
 		{
 			List<BlueprintRoom> nodes = chart.byDepth(i);
-			DATA_LOG.info(" - Scrunching {} nodes at depth {}", nodes.size(), i);
-			if(tryScrunch(nodes, chart))
+			log.info(" - Scrunching {} nodes at depth {}", nodes.size(), i);
+			if(parallel && nodes.size() > 1 ? tryScrunchParallel(nodes, chart, log) : tryScrunch(nodes, chart, log))
 				anyMoved = true;
 		}
-		DATA_LOG.info("Scrunch operation completed");
-		DATA_LOG.info(" # Time to complete scrunch operation: {}ms", System.currentTimeMillis() - time);
+		log.info("Scrunch operation completed");
+		log.info(" # Time to complete scrunch operation: {}ms", System.currentTimeMillis() - time);
 		return anyMoved;
 	}
 	
-	private static boolean tryScrunch(List<BlueprintRoom> nodes, Blueprint chart)
+	private static boolean tryScrunch(List<BlueprintRoom> nodes, Blueprint chart, DataLog log)
 	{
 		boolean anyMoved = false;
 		for(BlueprintRoom node : nodes)
-			if(tryScrunchNode(node, chart))
+			if(tryScrunchNode(node, chart, log))
+				anyMoved = true;
+		return anyMoved;
+	}
+	
+	/**
+	 * Evaluates the scrunch of each node concurrently on the generation workers, each within its own snapshot of the blueprint.<br>
+	 * The resulting moves are then revalidated and applied to the live blueprint in node order, skipping any that conflict with moves applied before them.
+	 */
+	private static boolean tryScrunchParallel(List<BlueprintRoom> nodes, Blueprint chart, DataLog log)
+	{
+		// Resolve passages once beforehand, so each snapshot inherits them rather than recalculating
+		chart.passageTiles();
+		
+		List<Callable<Candidate>> tasks = Lists.newArrayList();
+		for(BlueprintRoom node : nodes)
+		{
+			final Blueprint snapshot = chart.snapshot();
+			tasks.add(() -> 
+			{
+				DataLog taskLog = new DataLog();
+				Optional<BlueprintRoom> copy = snapshot.stream().filter(r -> r.uuid().equals(node.uuid())).findFirst();
+				if(copy.isEmpty() || !tryScrunchNode(copy.get(), snapshot, taskLog))
+					return new Candidate(Optional.empty(), taskLog);
+				
+				return new Candidate(Optional.of(copy.get().tilePosition().sub(node.tilePosition()).toVec2i()), taskLog);
+			});
+		}
+		
+		List<Future<Candidate>> results = GenerationScheduler.workers().invokeAll(tasks);
+		boolean anyMoved = false;
+		for(int i=0; i<nodes.size(); i++)
+		{
+			Candidate candidate;
+			try
+			{
+				candidate = results.get(i).get();
+			}
+			catch(InterruptedException | ExecutionException e)
+			{
+				LOGGER.error("Error evaluating scrunch of {}: {}", nodes.get(i), e.getMessage());
+				continue;
+			}
+			
+			log.append(candidate.log());
+			if(candidate.move().isPresent() && tryMove(nodes.get(i), chart, candidate.move().get(), log))
 				anyMoved = true;
+		}
 		return anyMoved;
 	}
 	
 	/** Attempts to reduce the distance between the node and its parents */
 	public static boolean tryScrunchNode(BlueprintRoom node, Blueprint chart)
 	{
-		DATA_LOG.info(" -- Processing {}", node);
+		return tryScrunchNode(node, chart, new DataLog());
+	}
+	
+	private static boolean tryScrunchNode(BlueprintRoom node, Blueprint chart, DataLog log)
+	{
+		log.info(" -- Processing {}", node);
 		
 		// Find the passage that opens into this room
 		Optional<BlueprintPassage> entryPassage = Blueprint.getPassageInto(node, chart);
 		if(entryPassage.isEmpty())
 		{
-			DATA_LOG.warn(" ? Couldn't find passage leading to {}", node);
+			log.warn(" ? Couldn't find passage leading to {}", node);
 			return false;
 		}
 		
@@ -110,7 +183,7 @@ public class GraphScruncher
 			end = node.getEntryTile();
 		if(start.equals(end))
 		{
-			DATA_LOG.info(" = No movement needed");
+			log.info(" = No movement needed");
 			return false;
 		}
 		
@@ -121,7 +194,7 @@ public class GraphScruncher
 				 * Calculate changes in direction along path from child to parent, use those to direct scrunch motion
 				 * This emphasises sleeker less-convoluted passages
 				 */
-				final Predicate<GridTile> walkable = passage.tiles()::contains;
+				final Predicate<GridTile> walkable = passage::contains;
 				PathingResult route = (new GridPathing(walkable)).findPathBetween(end, start);
 				
 				// Collection unique course changes along passage towards parent
@@ -142,7 +215,7 @@ public class GraphScruncher
 				while(!courseChanges.isEmpty())
 				{
 					Direction last = courseChanges.removeLast();
-					if(tryMoveRelative(node, chart, new Vector2i(last.getOffsetX(), last.getOffsetZ())))
+					if(tryMoveRelative(node, chart, new Vector2i(last.getOffsetX(), last.getOffsetZ()), log))
 						return true;
 				}
 				return false;
@@ -154,7 +227,7 @@ public class GraphScruncher
 				 */
 				Vector2i vec = start.toVec2i().sub(end.toVec2i());
 				vec = new Vector2i((int)Math.signum(vec.x), (int)Math.signum(vec.y));
-				return tryMoveRelative(node, chart, vec);
+				return tryMoveRelative(node, chart, vec, log);
 		}
 	}
 	
@@ -165,13 +238,13 @@ public class GraphScruncher
 	 * @param move The local vector to apply to the room
 	 * @return True if the room was successfully moved at all
 	 */
-	private static boolean tryMoveRelative(BlueprintRoom node, Blueprint chart, Vector2i move)
+	private static boolean tryMoveRelative(BlueprintRoom node, Blueprint chart, Vector2i move, DataLog log)
 	{
 		if(move.length() == 0)
 			return false;
 		
 		// Try move the full offset
-		if(tryMove(node, chart, move))
+		if(tryMove(node, chart, move, log))
 			return true;
 		
 		// If both axises are non-zero, try to move on each individually
@@ -180,8 +253,8 @@ public class GraphScruncher
 			Vector2i onlyX = new Vector2i(move.x, 0);
 			Vector2i onlyY = new Vector2i(0, move.y);
 			
-			Supplier<Boolean> tryX = () -> tryMove(node, chart, onlyX);
-			Supplier<Boolean> tryY = () -> tryMove(node, chart, onlyY);
+			Supplier<Boolean> tryX = () -> tryMove(node, chart, onlyX, log);
+			Supplier<Boolean> tryY = () -> tryMove(node, chart, onlyY, log);
 			
 			// Prioritise moving in whichever direction results in the shortest distance to the point
 			if(Math.abs(move.x) >= Math.abs(move.y))
@@ -202,33 +275,41 @@ public class GraphScruncher
 	 */
 	public static boolean tryMove(BlueprintRoom node, Blueprint chart, Vector2i move)
 	{
-		// Clone blueprint and simulate movement
+		return tryMove(node, chart, move, new DataLog());
+	}
+	
+	private static boolean tryMove(BlueprintRoom node, Blueprint chart, Vector2i move, DataLog log)
+	{
 		// Apply movement to all descendants as well to minimise overall processing time
-		Blueprint sim = chart.clone();
-		List<BlueprintRoom> simNodes = Lists.newArrayList();
-		simNodes.add(sim.getRoom(node.uuid()).get());
-		simNodes.addAll(BlueprintRoom.getDescendants(simNodes.getFirst(), sim));
+		List<BlueprintRoom> nodes = Lists.newArrayList(node);
+		nodes.addAll(BlueprintRoom.getDescendants(node, chart));
 		
-		simNodes.forEach(n -> n.move(move));
+		// Simulate the movement in place, only recalculating the passages it affects
+		final int passageTiles = chart.passageTiles();
+		BlueprintMove trial = BlueprintMove.apply(chart, nodes, move);
 		for(ErrorType error : ErrorType.values())
-			if(error.anyExist(sim))
+			if(error.anyExist(chart))
 			{
-				DATA_LOG.error(" ! {} error precluded movement of {} by {}", error.name(), node, CDUtils.formatVec2i(move));
+				log.error(" ! {} error precluded movement of {} by {}", error.name(), node, CDUtils.formatVec2i(move));
+				trial.rollback();
 				return false;
 			}
 		
-		if(sim.passageTiles() > chart.passageTiles())
+		if(chart.passageTiles() > passageTiles)
 		{
-			DATA_LOG.warn(" ? Movement of {} by {} increased overall passage footprint", node, CDUtils.formatVec2i(move));
+			log.warn(" ? Movement of {} by {} increased overall passage footprint", node, CDUtils.formatVec2i(move));
+			trial.rollback();
 			return false;
 		}
 		
-		// If the simulation caused no errors, apply it to the live blueprint
-		node.move(move);
-		BlueprintRoom.getDescendants(node, chart).forEach(n -> n.move(move));
+		// If the simulation caused no errors, keep it
+		trial.commit();
 		return true;
 	}
 	
+	/** The result of evaluating the scrunch of a single node within a snapshot */
+	private static record Candidate(Optional<Vector2i> move, DataLog log) { }
+	
 	public static enum ScrunchStyle implements StringIdentifiable
 	{
 		LINEAR("linear"),
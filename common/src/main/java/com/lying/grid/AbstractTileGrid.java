@@ -1,10 +1,8 @@
 package com.lying.grid;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
@@ -17,25 +15,81 @@ import com.lying.init.CDLoggers;
 import com.lying.init.CDTiles;
 import com.lying.utility.logging.DebugLogger;
 import com.lying.worldgen.tile.Tile;
+import com.lying.worldgen.tile.TilePalette;
 
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
 import net.minecraft.util.math.Direction;
 
+/**
+ * A volume of positions each holding a tile.<br>
+ * Positions are packed into long keys and tiles are stored as integer IDs from the global {@link TilePalette}.
+ */
 public abstract class AbstractTileGrid<T extends Object>
 {
 	public static final DebugLogger LOGGER = CDLoggers.WFC;
 	public static final Tile BLANK	= CDTiles.BLANK.get();
+	protected static final int BLANK_ID	= TilePalette.BLANK_ID;
 	
-	protected final Map<T, Tile> set = new HashMap<>();
-	protected final Map<Tile, Integer> tally = new HashMap<>();
-	protected final Map<T, List<Tile>> optionCache = new HashMap<>();
+	protected TileStorage storage = new TileStorage.Sparse();
 	
-	public final int volume() { return set.size(); }
+	/** Palette in effect when this grid was created, so IDs remain stable if tiles are reloaded mid-generation */
+	private final TilePalette palette = TilePalette.current();
+	/** Tiles absent from the palette, assigned IDs following on from it */
+	private final List<Tile> unregistered = Lists.newArrayList();
+	private int[] tally = new int[palette.size() + 1];
+	/** Positions of every non-blank tile by ID, so conditions can find nearby tiles of a type without searching around each position */
+	private LongSet[] located = new LongSet[tally.length];
 	
-	public final boolean isEmpty() { return set.isEmpty(); }
+	/** Converts the given position to a unique long key */
+	public abstract long pack(T pos);
+	
+	/** Converts the given long key back into a position */
+	public abstract T unpack(long key);
+	
+	/** Returns the ID of the given tile, extending this grid's palette if necessary */
+	protected final int idOf(Tile tile)
+	{
+		int id = findId(tile);
+		if(id == TilePalette.UNKNOWN)
+		{
+			id = palette.size() + unregistered.size();
+			unregistered.add(tile);
+			if(id >= tally.length)
+			{
+				tally = Arrays.copyOf(tally, tally.length * 2);
+				located = Arrays.copyOf(located, tally.length);
+			}
+		}
+		return id;
+	}
+	
+	/** Returns the ID of the given tile without modifying the palette, or {@link TilePalette#UNKNOWN} */
+	public final int findId(Tile tile)
+	{
+		int id = palette.idOf(tile);
+		if(id != TilePalette.UNKNOWN)
+			return id;
+		
+		for(int i=0; i<unregistered.size(); i++)
+			if(unregistered.get(i).is(tile))
+				return palette.size() + i;
+		return TilePalette.UNKNOWN;
+	}
+	
+	/** Returns the palette this grid's tile IDs are drawn from, beyond which IDs refer to unregistered tiles */
+	public final TilePalette palette() { return palette; }
+	
+	public final Tile tileOf(int id) { return id < palette.size() ? palette.get(id) : unregistered.get(id - palette.size()); }
+	
+	public final int volume() { return storage.size(); }
+	
+	public final boolean isEmpty() { return storage.size() == 0; }
 	
 	public AbstractTileGrid<T> addToVolume(T pos)
 	{
-		setTile(pos, BLANK);
+		setTile(pack(pos), BLANK);
 		return this;
 	}
 	
@@ -49,7 +103,10 @@ public abstract class AbstractTileGrid<T extends Object>
 	
 	public final AbstractTileGrid<T> removeFromVolume(T pos)
 	{
-		set.remove(pos);
+		long key = pack(pos);
+		int prev = storage.remove(key);
+		if(prev != TileStorage.ABSENT)
+			untrack(key, prev);
 		return this;
 	}
 	
@@ -64,9 +121,11 @@ public abstract class AbstractTileGrid<T extends Object>
 	
 	public boolean contains(T pos)
 	{
-		return set.keySet().stream().anyMatch(pos::equals);
+		return storage.contains(pack(pos));
 	}
 	
+	public final boolean contains(long key) { return storage.contains(key); }
+	
 	public abstract boolean containsAdjacent(T pos);
 	
 	public final boolean containsOrAdjacent(T pos)
@@ -76,8 +135,9 @@ public abstract class AbstractTileGrid<T extends Object>
 	
 	public final Optional<Tile> get(T pos)
 	{
-		if(contains(pos))
-			return Optional.of(set.get(pos));
+		int id = storage.get(pack(pos));
+		if(id != TileStorage.ABSENT)
+			return Optional.of(tileOf(id));
 		else
 		{
 			LOGGER.warn("Tried to retrieve position this grid does not recognise");
@@ -85,6 +145,9 @@ public abstract class AbstractTileGrid<T extends Object>
 		}
 	}
 	
+	/** Returns the ID of the tile at the given position, or {@link TileStorage#ABSENT} if it is not in this grid */
+	public final int idAt(long key) { return storage.get(key); }
+	
 	public void put(T pos, @Nullable Tile tile)
 	{
 		if(tile == null)
@@ -95,20 +158,46 @@ public abstract class AbstractTileGrid<T extends Object>
 			return;
 		}
 		
-		setTile(pos, tile == null ? BLANK : tile);
+		setTile(pack(pos), tile == null ? BLANK : tile);
 	}
 	
-	public final boolean isEmpty(T pos) { return get(pos).isEmpty() || get(pos).get().isBlank(); }
+	public final boolean isEmpty(T pos)
+	{
+		int id = storage.get(pack(pos));
+		return id == TileStorage.ABSENT || id == BLANK_ID;
+	}
 	
-	private final void setTile(T pos, @NotNull Tile tile)
+	private final void setTile(long key, @NotNull Tile tile)
 	{
-		get(pos).ifPresent(t -> tally.put(t, tallyOf(t) - 1));
+		if(!storage.accepts(key))
+			storage = storage.toSparse();
 		
-		set.put(pos, tile);
-		tally.put(tile, tallyOf(tile) + 1);
+		int id = idOf(tile);
+		int prev = storage.put(key, id);
+		if(prev != TileStorage.ABSENT)
+			untrack(key, prev);
+		++tally[id];
+		if(id != BLANK_ID)
+		{
+			if(located[id] == null)
+				located[id] = new LongOpenHashSet();
+			located[id].add(key);
+		}
 	}
 	
-	public final Collection<T> contents() { return set.keySet(); }
+	private void untrack(long key, int id)
+	{
+		--tally[id];
+		if(id != BLANK_ID)
+			located[id].remove(key);
+	}
+	
+	public final Collection<T> contents()
+	{
+		List<T> contents = Lists.newArrayListWithCapacity(storage.size());
+		storage.forEach((key, id) -> contents.add(unpack(key)));
+		return contents;
+	}
 	
 	public final List<T> getBoundaries()
 	{
@@ -117,33 +206,51 @@ public abstract class AbstractTileGrid<T extends Object>
 	
 	public abstract List<T> getBoundaries(List<Direction> faces);
 	
-	public final boolean hasBlanks() { return tallyOf(BLANK) > 0; }
+	public final boolean hasBlanks() { return tally[BLANK_ID] > 0; }
 	
-	public final int tallyOf(Tile tile) { return tally.getOrDefault(tile, 0); }
+	public final int tallyOf(Tile tile)
+	{
+		int id = findId(tile);
+		return id == TilePalette.UNKNOWN ? 0 : tally[id];
+	}
+	
+	/** Returns the positions of all tiles with the given ID, which should not be modified */
+	public final LongSet positionsOf(int id) { return id > BLANK_ID && id < located.length && located[id] != null ? located[id] : LongSets.EMPTY_SET; }
+	
+	/** Returns true if any tile absent from this grid's palette has been assigned an ID */
+	public final boolean hasUnregistered() { return !unregistered.isEmpty(); }
+	
+	public final int tallyOf(int id) { return id >= 0 && id < tally.length ? tally[id] : 0; }
 	
 	public final int tallyMatching(Predicate<Tile> predicate)
 	{
 		int val = 0;
-		for(Entry<Tile,Integer> entry : tally.entrySet())
-			if(predicate.test(entry.getKey()))
-				val += entry.getValue();
+		for(int id=0; id<tally.length; id++)
+			if(tally[id] > 0 && predicate.test(tileOf(id)))
+				val += tally[id];
 		return val;
 	}
 	
 	public final List<T> getBlanks()
 	{
 		List<T> blanks = Lists.newArrayList();
-		set.entrySet().stream().filter(entry -> entry.getValue().isBlank()).map(Entry::getKey).forEach(blanks::add);
+		storage.forEach((key, id) ->
+		{
+			if(id == BLANK_ID)
+				blanks.add(unpack(key));
+		});
 		return blanks;
 	}
 	
-	public final void clearOptionCache()
-	{
-		optionCache.clear();
-	}
-	
 	public final List<T> getMatchingTiles(BiPredicate<T,Tile> predicate)
 	{
-		return set.entrySet().stream().filter(e -> predicate.test(e.getKey(), e.getValue())).map(Entry::getKey).toList();
+		List<T> matches = Lists.newArrayList();
+		storage.forEach((key, id) ->
+		{
+			T pos = unpack(key);
+			if(predicate.test(pos, tileOf(id)))
+				matches.add(pos);
+		});
+		return matches;
 	}
 }
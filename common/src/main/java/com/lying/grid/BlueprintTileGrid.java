@@ -1,14 +1,17 @@
 package com.lying.grid;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
 import org.jetbrains.annotations.Nullable;
 
 import com.google.common.collect.Lists;
+import com.lying.generation.GenerationContext;
 import com.lying.init.CDLoggers;
 import com.lying.init.CDTiles;
 import com.lying.utility.logging.DebugLogger;
+import com.lying.worldgen.SectionWriter;
 import com.lying.worldgen.theme.Theme;
 import com.lying.worldgen.tile.Tile;
 
@@ -28,10 +31,26 @@ public class BlueprintTileGrid extends AbstractTileGrid<BlockPos>
 		min = null, 
 		max = null;
 	
+	public BlueprintTileGrid() { }
+	
+	/** Creates a grid backed by dense storage for the given inclusive bounds */
+	protected BlueprintTileGrid(BlockPos minIn, BlockPos maxIn)
+	{
+		final int minX = minIn.getX(), minY = minIn.getY(), minZ = minIn.getZ();
+		final int sizeX = maxIn.getX() - minX + 1, sizeY = maxIn.getY() - minY + 1, sizeZ = maxIn.getZ() - minZ + 1;
+		storage = new TileStorage.Dense(sizeX * sizeY * sizeZ, 
+				key -> 
+				{
+					int x = BlockPos.unpackLongX(key) - minX, y = BlockPos.unpackLongY(key) - minY, z = BlockPos.unpackLongZ(key) - minZ;
+					if(x < 0 || x >= sizeX || y < 0 || y >= sizeY || z < 0 || z >= sizeZ)
+						return -1;
+					return (y * sizeZ + z) * sizeX + x;
+				}, 
+				index -> BlockPos.asLong(minX + index % sizeX, minY + index / (sizeX * sizeZ), minZ + (index / sizeX) % sizeZ));
+	}
+	
 	public static BlueprintTileGrid ofSize(BlockPos size)
 	{
-		BlueprintTileGrid map = new BlueprintTileGrid();
-		
 		int sizeX = Math.abs(size.getX());
 		sizeX = sizeX == 0 ? 1 : sizeX;
 		
@@ -41,6 +60,7 @@ public class BlueprintTileGrid extends AbstractTileGrid<BlockPos>
 		int sizeZ = Math.abs(size.getZ());
 		sizeZ = sizeZ == 0 ? 1 : sizeZ;
 		
+		BlueprintTileGrid map = new BlueprintTileGrid(BlockPos.ORIGIN, new BlockPos(sizeX - 1, sizeY - 1, sizeZ - 1));
 		for(int x=0; x<sizeX; x++)
 			for(int z=0; z<sizeZ; z++)
 				for(int y=0; y<sizeY; y++)
@@ -50,8 +70,22 @@ public class BlueprintTileGrid extends AbstractTileGrid<BlockPos>
 	
 	public static BlueprintTileGrid fromGraphGrid(GraphTileGrid graph, int height)
 	{
-		BlueprintTileGrid map = new BlueprintTileGrid();
-		graph.contents().forEach(tile -> 
+		final Collection<GridTile> footprint = graph.contents();
+		if(footprint.isEmpty())
+			return new BlueprintTileGrid();
+		
+		// The full volume is known in advance, so use dense storage across the footprint's bounds
+		int minX = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+		for(GridTile tile : footprint)
+		{
+			minX = Math.min(minX, tile.x);
+			minZ = Math.min(minZ, tile.y);
+			maxX = Math.max(maxX, tile.x);
+			maxZ = Math.max(maxZ, tile.y);
+		}
+		
+		BlueprintTileGrid map = new BlueprintTileGrid(new BlockPos(minX, 0, minZ), new BlockPos(maxX, Math.max(0, height - 1), maxZ));
+		footprint.forEach(tile -> 
 		{
 			BlockPos pos = new BlockPos(tile.x, 0, tile.y);
 			for(int i=0; i<height; i++)
@@ -66,6 +100,34 @@ public class BlueprintTileGrid extends AbstractTileGrid<BlockPos>
 		return this;
 	}
 	
+	/** Returns the minimum corner of this grid's volume, or null if it is empty */
+	@Nullable
+	public BlockPos min() { return min; }
+	
+	/**
+	 * Returns the contents of this grid independent of its location, such that equal grids produce equal fingerprints.<br>
+	 * The first half holds every position relative to the minimum corner in ascending order, the second half the tile ID at each of those positions.
+	 */
+	public long[] fingerprint()
+	{
+		final int size = storage.size();
+		long[] fingerprint = new long[size * 2];
+		if(min == null)
+			return fingerprint;
+		
+		final int minX = min.getX(), minY = min.getY(), minZ = min.getZ();
+		int[] index = new int[] {0};
+		storage.forEach((key, id) -> fingerprint[index[0]++] = BlockPos.asLong(BlockPos.unpackLongX(key) - minX, BlockPos.unpackLongY(key) - minY, BlockPos.unpackLongZ(key) - minZ));
+		Arrays.sort(fingerprint, 0, size);
+		for(int i=0; i<size; i++)
+			fingerprint[size + i] = storage.get(BlockPos.add(fingerprint[i], minX, minY, minZ));
+		return fingerprint;
+	}
+	
+	public long pack(BlockPos pos) { return pos.asLong(); }
+	
+	public BlockPos unpack(long key) { return BlockPos.fromLong(key); }
+	
 	public AbstractTileGrid<BlockPos> addToVolume(BlockPos pos)
 	{
 		final int x = pos.getX(), y = pos.getY(), z = pos.getZ();
@@ -98,6 +160,9 @@ public class BlueprintTileGrid extends AbstractTileGrid<BlockPos>
 	
 	public boolean containsAdjacent(BlockPos pos)
 	{
+		if(min == null)
+			return false;
+		
 		// Any point more than 1 increment outside the bounds of this grid cannot have an adjacent point within it
 		final int x = pos.getX(), y = pos.getY(), z = pos.getZ();
 		if(x < (min.getX() - 1) || x > (max.getX() + 1))
@@ -107,11 +172,18 @@ public class BlueprintTileGrid extends AbstractTileGrid<BlockPos>
 		if(z < (min.getZ() - 1) || z > (max.getZ() + 1))
 			return false;
 		
-		return set.keySet().stream().anyMatch(p2 -> p2.getManhattanDistance(pos) == 1);
+		final long key = pos.asLong();
+		for(Direction face : Direction.values())
+			if(contains(BlockPos.offset(key, face)))
+				return true;
+		return false;
 	}
 	
 	public boolean contains(BlockPos pos)
 	{
+		if(min == null)
+			return false;
+		
 		final int x = pos.getX(), y = pos.getY(), z = pos.getZ();
 		if(x < min.getX() || x > max.getX())
 			return false;
@@ -135,46 +207,38 @@ public class BlueprintTileGrid extends AbstractTileGrid<BlockPos>
 	
 	public BlockPos size()
 	{
-		int x = Integer.MIN_VALUE, y = Integer.MIN_VALUE, z = Integer.MIN_VALUE;
-		for(BlockPos pos : set.keySet())
-		{
-			if(pos.getX() > x)
-				x = pos.getX();
-			if(pos.getY() > y)
-				y = pos.getY();
-			if(pos.getZ() > z)
-				z = pos.getZ();
-		}
-		return new BlockPos(x, y, z).add(1, 1, 1);
+		if(max == null)
+			return new BlockPos(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE).add(1, 1, 1);
+		return max.add(1, 1, 1);
 	}
 	
-	public boolean isBoundary(BlockPos pos, Direction side) { return !contains(pos.offset(side)); }
+	public boolean isBoundary(BlockPos pos, Direction side) { return isBoundary(pos.asLong(), side); }
+	
+	public boolean isBoundary(long key, Direction side) { return !contains(BlockPos.offset(key, side)); }
 	
 	public List<BlockPos> getBoundaries(List<Direction> faces)
 	{
-		return set.keySet().stream().filter(p -> faces.stream().anyMatch(f -> isBoundary(p, f))).toList();
+		List<BlockPos> boundaries = Lists.newArrayList();
+		storage.forEach((key, id) -> 
+		{
+			for(Direction face : faces)
+				if(!contains(BlockPos.offset(key, face)))
+				{
+					boundaries.add(BlockPos.fromLong(key));
+					return;
+				}
+		});
+		return boundaries;
 	}
 	
 	public void applyToAllValid(Tile tile)
 	{
-		Collection<BlockPos> points = set.keySet();
+		Collection<BlockPos> points = contents();
 		points.stream()
 			.filter(p -> get(p).get().isBlank() && tile.canExistAt(p, this))
 			.forEach(p -> put(p, tile));
 	}
 	
-	public List<Tile> getOptionsFor(BlockPos pos, List<Tile> useable)
-	{
-		List<Tile> options = Lists.newArrayList();
-		
-		// Cache the result so we don't have to recalculate it every single step of tile generation
-		options.addAll(optionCache.getOrDefault(pos, useable.stream().filter(t -> t.canExistAt(pos, this)).toList()));
-		if(!optionCache.containsKey(pos))
-			optionCache.put(pos, options);
-		
-		return options;
-	}
-	
 	public void put(BlockPos pos, @Nullable Tile tile)
 	{
 		super.put(pos, tile);
@@ -186,15 +250,15 @@ public class BlueprintTileGrid extends AbstractTileGrid<BlockPos>
 	{
 		LOGGER.info("Finalising tile set...");
 		finalised.clear();
-		set.entrySet().forEach(entry -> 
+		storage.forEach((key, id) -> 
 		{
-			Tile tile = entry.getValue();
+			Tile tile = tileOf(id);
 			if(tile == null || tile.isFlag())
 				return;
 			
-			BlockPos pos = entry.getKey();
+			BlockPos pos = BlockPos.fromLong(key);
 			BlockRotation rotation = tile.assignRotation(pos, this, this::get, rand);
-			finalised.add(new TileInstance(pos, tile, theme, rotation));
+			finalised.add(new TileInstance(pos, tile, theme, rotation, rand.nextLong()));
 		});
 		if(!finalised.isEmpty())
 			LOGGER.info("Tile set finalised");
@@ -220,16 +284,32 @@ public class BlueprintTileGrid extends AbstractTileGrid<BlockPos>
 			return false;
 		}
 		
-		finalised.forEach(entry -> entry.generate(origin.add(entry.pos().multiply(Tile.TILE_SIZE)), world));
+		final SectionWriter writer = new SectionWriter(world);
+		finalised.forEach(entry -> entry.generate(origin.add(entry.pos().multiply(Tile.TILE_SIZE)), writer));
+		writer.flush();
 		LOGGER.info("Tile set generated successfully");
 		return true;
 	}
 	
-	public static record TileInstance(BlockPos pos, Tile tile, Theme theme, BlockRotation rotation)
+	/** A tile placed within a finalised map, along with the seed of any randomness used when generating it */
+	public static record TileInstance(BlockPos pos, Tile tile, Theme theme, BlockRotation rotation, long seed)
 	{
+		public TileInstance(BlockPos pos, Tile tile, Theme theme, BlockRotation rotation)
+		{
+			this(pos, tile, theme, rotation, pos.asLong());
+		}
+		
+		/** Returns a new random for generating this tile, independent of any other tile */
+		public Random random() { return GenerationContext.create(seed); }
+		
 		public void generate(BlockPos position, ServerWorld world)
 		{
 			tile.generate(this, position, world);
 		}
+		
+		public void generate(BlockPos position, SectionWriter writer)
+		{
+			tile.generate(this, position, writer);
+		}
 	}
 }
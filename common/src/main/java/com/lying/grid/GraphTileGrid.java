@@ -5,12 +5,18 @@ import java.util.Optional;
 
 import org.joml.Math;
 
+import com.google.common.collect.Lists;
+
 import net.minecraft.util.math.Direction;
 
 public class GraphTileGrid extends AbstractTileGrid<GridTile>
 {
 	private Optional<GridTile> min = Optional.empty(), max = Optional.empty();
 	
+	public long pack(GridTile pos) { return pos.asLong(); }
+	
+	public GridTile unpack(long key) { return GridTile.fromLong(key); }
+	
 	public AbstractTileGrid<GridTile> addToVolume(GridTile from, GridTile to)
 	{
 		int minX = Math.min(from.x, to.x);
@@ -21,7 +27,7 @@ public class GraphTileGrid extends AbstractTileGrid<GridTile>
 		
 		for(int x = minX; x < maxX; x++)
 			for(int y = minY; y < maxY; y++)
-				addToVolume(new GridTile(x, y));
+				addToVolume(GridTile.of(x, y));
 		return this;
 	}
 	
@@ -34,9 +40,9 @@ public class GraphTileGrid extends AbstractTileGrid<GridTile>
 		{
 			GridTile m = this.min.get();
 			if(m.x > x)
-				min = Optional.of(new GridTile(x, m.y));
+				min = Optional.of(GridTile.of(x, m.y));
 			if(m.y > y)
-				min = Optional.of(new GridTile(m.x, y));
+				min = Optional.of(GridTile.of(m.x, y));
 		}
 		
 		if(max.isEmpty())
@@ -45,9 +51,9 @@ public class GraphTileGrid extends AbstractTileGrid<GridTile>
 		{
 			GridTile m = this.max.get();
 			if(m.x < x)
-				max = Optional.of(new GridTile(x, m.y));
+				max = Optional.of(GridTile.of(x, m.y));
 			if(m.y < y)
-				max = Optional.of(new GridTile(m.x, y));
+				max = Optional.of(GridTile.of(m.x, y));
 		}
 		return super.addToVolume(pos);
 	}
@@ -55,9 +61,9 @@ public class GraphTileGrid extends AbstractTileGrid<GridTile>
 	public boolean contains(GridTile pos)
 	{
 		final int x=pos.x, y=pos.y;
-		if(min.isPresent() && x < min.get().x || y < min.get().y)
+		if(min.isEmpty() || x < min.get().x || y < min.get().y)
 			return false;
-		if(max.isPresent() && x > max.get().x || y > max.get().y)
+		if(max.isEmpty() || x > max.get().x || y > max.get().y)
 			return false;
 		return super.contains(pos);
 	}
@@ -66,12 +72,15 @@ public class GraphTileGrid extends AbstractTileGrid<GridTile>
 	{
 		// Any position more than one step outside of the bounds cannot have an adjacency within it
 		final int x=pos.x, y=pos.y;
-		if(min.isPresent() && x < (min.get().x - 1) || y < (min.get().y - 1))
+		if(min.isEmpty() || x < (min.get().x - 1) || y < (min.get().y - 1))
 			return false;
-		if(max.isPresent() && x > (max.get().x + 1) || y > (max.get().y + 1))
+		if(max.isEmpty() || x > (max.get().x + 1) || y > (max.get().y + 1))
 			return false;
 		
-		return set.keySet().stream().anyMatch(p2 -> p2.manhattanDistance(pos) == 1);
+		for(Direction face : Direction.Type.HORIZONTAL)
+			if(contains(GridTile.asLong(x + face.getOffsetX(), y + face.getOffsetZ())))
+				return true;
+		return false;
 	}
 	
 	public boolean containsOrAdjacentTo(GridTile pos)
@@ -90,7 +99,14 @@ public class GraphTileGrid extends AbstractTileGrid<GridTile>
 	
 	public List<GridTile> getBoundaries(List<Direction> faces)
 	{
-		return set.keySet().stream().filter(p -> faces.stream().anyMatch(f -> isBoundary(p, f))).toList();
+		List<GridTile> boundaries = Lists.newArrayList();
+		storage.forEach((key, id) -> 
+		{
+			GridTile pos = unpack(key);
+			if(faces.stream().anyMatch(f -> isBoundary(pos, f)))
+				boundaries.add(pos);
+		});
+		return boundaries;
 	}
 	
 	public boolean isBoundary(GridTile pos) { return Direction.Type.HORIZONTAL.stream().anyMatch(d -> isBoundary(pos, d)); }
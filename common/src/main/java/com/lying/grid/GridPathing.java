@@ -1,7 +1,8 @@
 package com.lying.grid;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 import java.util.function.Predicate;
 
 import org.jetbrains.annotations.Nullable;
@@ -11,6 +12,8 @@ import com.google.common.base.Predicates;
 import com.google.common.collect.Lists;
 import com.lying.worldgen.tile.Tile;
 
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.minecraft.util.Pair;
 import net.minecraft.util.math.Direction;
 
@@ -23,6 +26,33 @@ public class GridPathing
 			.stream()
 			.map(d -> new AStarMove(new Vector2i(d.getOffsetX(), d.getOffsetZ())))
 			.toList();
+	/** Offsets, opposing moves and transition costs of each move in {@link #MOVE_SET}, indexed for the A* inner loop */
+	private static final int[] MOVE_X, MOVE_Y, OPPOSITES;
+	/** Cost of each move, indexed by the previous move plus one (so no previous move is index 0) */
+	private static final float[][] MOVE_COSTS;
+	static
+	{
+		int moves = MOVE_SET.size();
+		MOVE_X = new int[moves];
+		MOVE_Y = new int[moves];
+		OPPOSITES = new int[moves];
+		MOVE_COSTS = new float[moves + 1][moves];
+		for(int i=0; i<moves; i++)
+		{
+			AStarMove move = MOVE_SET.get(i);
+			MOVE_X[i] = move.offset.x;
+			MOVE_Y[i] = move.offset.y;
+			MOVE_COSTS[0][i] = move.cost(null);
+			for(int j=0; j<moves; j++)
+			{
+				if(move.isOpposite(MOVE_SET.get(j)))
+					OPPOSITES[i] = j;
+				MOVE_COSTS[j + 1][i] = move.cost(MOVE_SET.get(j));
+			}
+		}
+	}
+	private static final ThreadLocal<AStarSearch> SEARCH = ThreadLocal.withInitial(AStarSearch::new);
+	private static final ThreadLocal<JoinSearch> JOIN_SEARCH = ThreadLocal.withInitial(JoinSearch::new);
 	
 	/** Available grid path finding algorithms in ascending order of complexity */
 	private static final List<GridPathFinder> PATHERS = List.of
@@ -81,72 +111,92 @@ public class GridPathing
 		this(Predicates.alwaysTrue());
 	}
 	
-	/** Returns the pair of tiles between sets that are best suited to be connected together */
+	/**
+	 * Finds the pair of tiles between sets with the shortest route joining them, using a single A* search outward from every tile in set A.<br>
+	 * Routes are ranked by number of tiles, then by number of course changes.
+	 * @return The best pair with its route already calculated, or null if no set B tile could be reached
+	 */
 	@Nullable
-	public static BoundTilePair findBestCandidatesToJoin(List<GridTile> setA, List<GridTile> setB, Predicate<GridTile> walkable)
+	public static BoundTilePair findBestJoin(List<GridTile> setA, List<GridTile> setB, Predicate<GridTile> walkable)
 	{
 		if(setA.isEmpty())
 			throw new UnsupportedOperationException("Set A of tiles provided is blank");
 		if(setB.isEmpty())
 			throw new UnsupportedOperationException("Set B of tiles provided were blank");
 		
-		// Find pair of cached tile in passage and child's doorway tile that are closest together
-		BoundTilePair closestPair = null;
-		for(GridTile tileA : setA)
-			for(GridTile tileB : setB)
+		final JoinSearch search = JOIN_SEARCH.get().reset(setB);
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+		for(GridTile tile : setB)
+		{
+			minX = Math.min(minX, tile.x);
+			minY = Math.min(minY, tile.y);
+			maxX = Math.max(maxX, tile.x);
+			maxY = Math.max(maxY, tile.y);
+		}
+		for(GridTile tile : setA)
+			if(search.sources.add(tile.asLong()))
+			{
+				search.open(tile.asLong(), -1, -1, 0L);
+				minX = Math.min(minX, tile.x);
+				minY = Math.min(minY, tile.y);
+				maxX = Math.max(maxX, tile.x);
+				maxY = Math.max(maxY, tile.y);
+			}
+		
+		// Search space limit comparable to that of a single A* search spanning both sets
+		final int maxSearch = Math.max(5, maxX - minX) * Math.max(5, maxY - minY) * 2 * (MOVE_X.length + 1);
+		
+		int expanded = 0;
+		int node;
+		while(expanded++ < maxSearch && (node = search.poll()) >= 0)
+		{
+			final long pos = search.pos[node];
+			if(search.targets.contains(pos))
+			{
+				List<GridTile> route = search.route(node);
+				return new BoundTilePair(route.getFirst(), route.getLast(), PathingResult.success(route));
+			}
+			
+			final int lastMove = search.move[node];
+			final int x = GridTile.unpackX(pos), y = GridTile.unpackY(pos);
+			for(int m=0; m<MOVE_X.length; m++)
 			{
-				BoundTilePair pair = new BoundTilePair(tileA, tileB, walkable);
+				// Always prohibit moving back against the current direction of travel
+				if(lastMove >= 0 && OPPOSITES[lastMove] == m)
+					continue;
 				
-				if(closestPair == null)
-				{
-					// Exclude any pairings that we couldn't actually build a passage from
-					if(pair.walkable())
-						closestPair = pair;
+				final int nX = x + MOVE_X[m], nY = y + MOVE_Y[m];
+				final long next = GridTile.asLong(nX, nY);
+				if(search.isClosed(next, m))
 					continue;
-				}
 				
-				// Exclude any potential candidates that are implicitly farther away than the best we've already found
-				if(pair.distance() > closestPair.distance())
+				// Tiles in either set are always treated as navigable, matching findPathBetween
+				if(!search.targets.contains(next) && !search.sources.contains(next) && !walkable.test(GridTile.of(nX, nY)))
 					continue;
 				
-				// If distances are lower, pick the new candidate
-				// If distances are equal, pick the candidate with the shortest resulting path length
-				if(
-						pair.distance() < closestPair.distance() || 
-						pair.length() < closestPair.length())
-					closestPair = pair;
+				long cost = search.cost[node] + JoinSearch.STEP_COST;
+				if(lastMove >= 0 && lastMove != m)
+					++cost;
+				search.open(next, node, m, cost);
 			}
-		return closestPair;
+		}
+		return null;
 	}
 	
+	/** A pair of tiles between sets, with the route joining them */
 	public static class BoundTilePair extends Pair<GridTile,GridTile>
 	{
-		private final double distance;
-		private final GridPathing pather;
-		
-		// Cached route between tiles, only calculated when necessary for performance reasons
-		private Optional<PathingResult> route = Optional.empty();
+		private final PathingResult route;
 		
-		public BoundTilePair(GridTile startIn, GridTile endIn, Predicate<GridTile> walkableIn)
+		public BoundTilePair(GridTile startIn, GridTile endIn, PathingResult routeIn)
 		{
 			super(startIn, endIn);
-			distance = getLeft().manhattanDistance(getRight());
-			pather = new GridPathing(walkableIn);
+			route = routeIn;
 		}
 		
-		public boolean walkable() { return route().isSuccess(); }
+		public boolean walkable() { return route.isSuccess(); }
 		
-		public double distance() { return distance; }
-		
-		/** Returns the number of tiles this path occupies */
-		public int length() { return route().isFailure() ? Integer.MAX_VALUE : route().result().size(); }
-		
-		public PathingResult route()
-		{
-			if(route.isEmpty())
-				route = Optional.of(pather.findPathBetween(getLeft(), getRight()));
-			return route.get();
-		}
+		public PathingResult route() { return route; }
 	}
 	
 	public PathingResult findPathBetween(GridTile start, GridTile end)
@@ -170,37 +220,43 @@ public class GridPathing
 		if(start.equals(end))
 			return PathingResult.success(List.of(start));
 		
-		// Nodes we've already visited
-		List<AStarNode> closed = Lists.newArrayList();
-		List<GridTile> closedTiles = Lists.newArrayList();
-		
-		// Nodes we've yet to investigate
-		List<AStarNode> open = Lists.newArrayList(new AStarNode(start, end));
-		
 		// Calculate maximum search space limit so we don't run excessively long and waste CPU
 		final int xSpan = Math.max(5, Math.abs(start.x - end.x));
 		final int ySpan = Math.max(5, Math.abs(start.y - end.y));
 		final int maxSearch = xSpan * ySpan * 2;
 		
-		while(!open.isEmpty() && closed.size() < maxSearch)
+		final AStarSearch search = SEARCH.get().reset();
+		search.open(start.asLong(), -1, -1, 0F, 0D);
+		
+		int expanded = 0;
+		while(expanded < maxSearch)
 		{
-			AStarNode option = open.getFirst();
-			for(AStarNode c : open)
-				if(c.value() < option.value())
-					option = c;
+			final int node = search.poll();
+			if(node < 0)
+				break;
 			
-			final AStarNode candidate = option;
-			open.remove(candidate);
-			closed.add(candidate);
-			closedTiles.add(candidate.pos);
+			final long pos = search.pos[node];
+			final int lastMove = search.move[node];
+			search.close(pos);
+			++expanded;
 			
-			for(AStarNode move : getAStarCandidates(candidate, closedTiles, walkable))
+			final int x = GridTile.unpackX(pos), y = GridTile.unpackY(pos);
+			for(int m=0; m<MOVE_X.length; m++)
 			{
-				if(move.isEnd())
-					return PathingResult.success(move.route());
+				// Always prohibit moving back against the current direction of travel
+				if(lastMove >= 0 && OPPOSITES[lastMove] == m)
+					continue;
 				
-				open.removeIf(move::isBetter);
-				open.add(move);
+				final int nX = x + MOVE_X[m], nY = y + MOVE_Y[m];
+				if(nX == end.x && nY == end.y)
+					return PathingResult.success(search.route(node, end));
+				
+				final long next = GridTile.asLong(nX, nY);
+				if(search.isClosed(next) || !walkable.test(GridTile.of(nX, nY)))
+					continue;
+				
+				final float cost = search.cost[node] + MOVE_COSTS[lastMove + 1][m];
+				search.open(next, node, m, cost, end.distance(nX, nY) * cost);
 			}
 		}
 		
@@ -208,84 +264,291 @@ public class GridPathing
 		return PathingResult.failure("A* pathfinder timed out without finding a viable route");
 	}
 	
-	public static List<AStarNode> getAStarCandidates(AStarNode node, List<GridTile> ignore, Predicate<GridTile> walkable)
+	/**
+	 * Reusable working memory for multi-source searches.<br>
+	 * Each search state is a position paired with the move used to reach it, so course changes are costed correctly.
+	 */
+	private static final class JoinSearch
 	{
-		List<AStarNode> candidates = Lists.newArrayList();
-		for(AStarMove move : MOVE_SET)
+		/** Cost of a single step, large enough that course changes only ever break ties between routes of equal length */
+		private static final long STEP_COST = 1L << 20;
+		
+		private int count = 0;
+		private long[] pos = new long[256];
+		private int[] parent = new int[256];
+		private int[] move = new int[256];
+		private long[] cost = new long[256];
+		private long[] value = new long[256];
+		
+		/** Binary min-heap of node indices, ordered by value then insertion order */
+		private int[] heap = new int[256];
+		private int heapSize = 0;
+		
+		private final LongOpenHashSet sources = new LongOpenHashSet();
+		private final LongOpenHashSet targets = new LongOpenHashSet();
+		private int[] targetX = new int[16], targetY = new int[16];
+		private int targetCount = 0;
+		/** Bitmask of arrival moves already closed at each position, with bit 0 indicating no move */
+		private final Long2IntOpenHashMap closed = new Long2IntOpenHashMap();
+		
+		public JoinSearch reset(List<GridTile> targetsIn)
+		{
+			count = 0;
+			heapSize = 0;
+			sources.clear();
+			targets.clear();
+			closed.clear();
+			
+			if(targetX.length < targetsIn.size())
+			{
+				targetX = new int[targetsIn.size()];
+				targetY = new int[targetsIn.size()];
+			}
+			targetCount = targetsIn.size();
+			for(int i=0; i<targetCount; i++)
+			{
+				GridTile tile = targetsIn.get(i);
+				targets.add(tile.asLong());
+				targetX[i] = tile.x;
+				targetY[i] = tile.y;
+			}
+			return this;
+		}
+		
+		/** Manhattan distance to the nearest target, which never overestimates the remaining number of steps */
+		private long estimate(long key)
+		{
+			final int x = GridTile.unpackX(key), y = GridTile.unpackY(key);
+			int min = Integer.MAX_VALUE;
+			for(int i=0; i<targetCount && min > 0; i++)
+				min = Math.min(min, Math.abs(targetX[i] - x) + Math.abs(targetY[i] - y));
+			return min * STEP_COST;
+		}
+		
+		public boolean isClosed(long key, int moveIn) { return (closed.get(key) & (1 << (moveIn + 1))) != 0; }
+		
+		public void open(long key, int parentIn, int moveIn, long costIn)
 		{
-			// Always prohibit moving back against the current direction of travel
-			if(move.isOpposite(node.moveTaken.orElse(null)))
-				continue;
+			final int node = count++;
+			if(node == pos.length)
+			{
+				int size = pos.length * 2;
+				pos = Arrays.copyOf(pos, size);
+				parent = Arrays.copyOf(parent, size);
+				move = Arrays.copyOf(move, size);
+				cost = Arrays.copyOf(cost, size);
+				value = Arrays.copyOf(value, size);
+			}
+			
+			pos[node] = key;
+			parent[node] = parentIn;
+			move[node] = moveIn;
+			cost[node] = costIn;
+			value[node] = costIn + estimate(key);
 			
-			AStarNode option = node.apply(move);
-			if(option.isEnd())
-				return List.of(option);
-			else if(!ignore.contains(option.pos()) && walkable.test(option.pos()))
-				candidates.add(option);
+			if(heapSize == heap.length)
+				heap = Arrays.copyOf(heap, heapSize * 2);
+			int i = heapSize++;
+			while(i > 0)
+			{
+				int parentIndex = (i - 1) >> 1;
+				if(!before(node, heap[parentIndex]))
+					break;
+				heap[i] = heap[parentIndex];
+				i = parentIndex;
+			}
+			heap[i] = node;
+		}
+		
+		/** Removes and returns the cheapest unclosed state, or -1 if none remain */
+		public int poll()
+		{
+			while(heapSize > 0)
+			{
+				final int node = heap[0];
+				final int last = heap[--heapSize];
+				int i = 0, child;
+				while((child = (i << 1) + 1) < heapSize)
+				{
+					if(child + 1 < heapSize && before(heap[child + 1], heap[child]))
+						++child;
+					if(!before(heap[child], last))
+						break;
+					heap[i] = heap[child];
+					i = child;
+				}
+				heap[i] = last;
+				
+				// States may be queued more than once, so only the first to surface is expanded
+				final int bit = 1 << (move[node] + 1);
+				final int mask = closed.get(pos[node]);
+				if((mask & bit) == 0)
+				{
+					closed.put(pos[node], mask | bit);
+					return node;
+				}
+			}
+			return -1;
 		}
-		return candidates;
+		
+		/** Returns the positions from the originating source to the given node */
+		public List<GridTile> route(int node)
+		{
+			List<GridTile> route = Lists.newArrayList();
+			for(int n = node; n >= 0; n = parent[n])
+				route.add(GridTile.fromLong(pos[n]));
+			Collections.reverse(route);
+			return route;
+		}
+		
+		private boolean before(int a, int b) { return value[a] < value[b] || value[a] == value[b] && a < b; }
 	}
 	
-	private static class AStarNode
+	/**
+	 * Reusable working memory for A* searches.<br>
+	 * Nodes are stored in parallel arrays and identified by their index, which doubles as their insertion order.
+	 */
+	private static final class AStarSearch
 	{
-		private final List<AStarNode> history = Lists.newArrayList();
-		private final Optional<AStarMove> moveTaken;
-		private final GridTile pos, destination;
-		private final float totalCost;
-		private final double distance;
+		private static final byte OPEN = 0, CLOSED = 1, SUPERSEDED = 2;
+		
+		private int count = 0;
+		private long[] pos = new long[256];
+		private int[] parent = new int[256];
+		private int[] move = new int[256];
+		private float[] cost = new float[256];
+		private double[] value = new double[256];
+		private byte[] state = new byte[256];
+		/** Index of the next open node sharing the same position */
+		private int[] nextAtPos = new int[256];
+		
+		/** Binary min-heap of node indices, ordered by value then insertion order */
+		private int[] heap = new int[256];
+		private int heapSize = 0;
 		
-		public AStarNode(GridTile posIn, GridTile targetIn)
+		private final LongOpenHashSet closed = new LongOpenHashSet();
+		private final Long2IntOpenHashMap openAtPos = new Long2IntOpenHashMap();
+		
+		public AStarSearch()
 		{
-			this(posIn, Optional.empty(), 0F, targetIn);
+			openAtPos.defaultReturnValue(-1);
 		}
 		
-		public AStarNode(GridTile posIn, Optional<AStarMove> lastMove, float cost, GridTile targetIn)
+		public AStarSearch reset()
 		{
-			pos = posIn;
-			destination = targetIn;
-			moveTaken = lastMove;
-			totalCost = cost;
-			distance = pos.distance(destination);
+			count = 0;
+			heapSize = 0;
+			closed.clear();
+			openAtPos.clear();
+			return this;
 		}
 		
-		public GridTile pos() { return pos; }
+		public boolean isClosed(long key) { return closed.contains(key); }
 		
-		public double value() { return distance * totalCost; }
+		public void close(long key)
+		{
+			closed.add(key);
+			openAtPos.remove(key);
+		}
 		
-		public boolean isEnd() { return pos.equals(destination); }
+		public void open(long key, int parentIn, int moveIn, float costIn, double valueIn)
+		{
+			// Discard any open nodes at the same position that cost more than this one
+			for(int n = openAtPos.get(key); n >= 0; n = nextAtPos[n])
+				if(state[n] == OPEN && cost[n] > costIn)
+					state[n] = SUPERSEDED;
+			
+			final int node = count++;
+			if(node == pos.length)
+				grow();
+			
+			pos[node] = key;
+			parent[node] = parentIn;
+			move[node] = moveIn;
+			cost[node] = costIn;
+			value[node] = valueIn;
+			state[node] = OPEN;
+			nextAtPos[node] = openAtPos.put(key, node);
+			push(node);
+		}
 		
-		public String toString() { return pos.toString(); }
+		/** Removes and returns the open node with the lowest value, or -1 if no open nodes remain */
+		public int poll()
+		{
+			while(heapSize > 0)
+			{
+				final int node = heap[0];
+				heap[0] = heap[--heapSize];
+				siftDown(0);
+				
+				// Superseded nodes are left in the heap and discarded as they surface
+				if(state[node] == OPEN)
+				{
+					state[node] = CLOSED;
+					return node;
+				}
+			}
+			return -1;
+		}
 		
-		/** Returns true if we're the same position but faster */
-		public boolean isBetter(AStarNode node)
+		/** Returns the positions from the search origin to the given node, followed by the given end tile */
+		public List<GridTile> route(int node, GridTile end)
 		{
-			return pos.equals(node.pos) && node.totalCost > totalCost;
+			List<GridTile> route = Lists.newArrayList(end);
+			for(int n = node; n >= 0; n = parent[n])
+				route.add(GridTile.fromLong(pos[n]));
+			Collections.reverse(route);
+			return route;
 		}
 		
-		protected AStarNode setHistory(List<AStarNode> historyIn)
+		private boolean before(int a, int b) { return value[a] < value[b] || value[a] == value[b] && a < b; }
+		
+		private void push(int node)
 		{
-			history.clear();
-			history.addAll(historyIn);
-			return this;
+			if(heapSize == heap.length)
+				heap = Arrays.copyOf(heap, heapSize * 2);
+			
+			int i = heapSize++;
+			while(i > 0)
+			{
+				int parentIndex = (i - 1) >> 1;
+				if(!before(node, heap[parentIndex]))
+					break;
+				heap[i] = heap[parentIndex];
+				i = parentIndex;
+			}
+			heap[i] = node;
 		}
 		
-		public List<GridTile> route()
+		private void siftDown(int i)
 		{
-			List<AStarNode> history = Lists.newArrayList(this.history);
-			history.add(this);
-			return history.stream().map(AStarNode::pos).toList();
+			if(heapSize == 0)
+				return;
+			
+			final int node = heap[i];
+			int child;
+			while((child = (i << 1) + 1) < heapSize)
+			{
+				if(child + 1 < heapSize && before(heap[child + 1], heap[child]))
+					++child;
+				if(!before(heap[child], node))
+					break;
+				heap[i] = heap[child];
+				i = child;
+			}
+			heap[i] = node;
 		}
 		
-		public AStarNode apply(AStarMove move)
+		private void grow()
 		{
-			List<AStarNode> history = Lists.newArrayList(this.history);
-			history.add(this);
-			return new AStarNode(
-					pos.add(move.offset), 
-					Optional.of(move),
-					totalCost + move.cost(this.moveTaken.orElse(null)), 
-					destination)
-					.setHistory(history);
+			int size = pos.length * 2;
+			pos = Arrays.copyOf(pos, size);
+			parent = Arrays.copyOf(parent, size);
+			move = Arrays.copyOf(move, size);
+			cost = Arrays.copyOf(cost, size);
+			value = Arrays.copyOf(value, size);
+			state = Arrays.copyOf(state, size);
+			nextAtPos = Arrays.copyOf(nextAtPos, size);
 		}
 	}
 	
@@ -12,15 +12,26 @@ import com.lying.utility.geometry.AbstractBox2f;
 import com.lying.utility.geometry.Box2f;
 import com.lying.worldgen.tile.Tile;
 
+import it.unimi.dsi.fastutil.HashCommon;
+
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Box;
 import net.minecraft.util.math.Direction;
 import net.minecraft.util.math.Vec2f;
 
+/** An immutable 2D grid position, hashable and packable into a single long */
 public class GridTile
 {
 	public static final int GRID_SIZE	= Tile.TILE_SIZE;
-	public static final GridTile ZERO	= new GridTile(0,0);
+	/** Tiles within this distance of the origin on both axes are interned by {@link #of} */
+	private static final int CACHE_RADIUS	= 32;
+	private static final GridTile[] CACHE	= new GridTile[4 * CACHE_RADIUS * CACHE_RADIUS];
+	static
+	{
+		for(int i=0; i<CACHE.length; i++)
+			CACHE[i] = new GridTile(i % (2 * CACHE_RADIUS) - CACHE_RADIUS, i / (2 * CACHE_RADIUS) - CACHE_RADIUS);
+	}
+	public static final GridTile ZERO	= of(0,0);
 	public static final AbstractBox2f BOUNDS	= new Box2f(0, GRID_SIZE, 0, GRID_SIZE);
 	public static final Box BOX					= new Box(0, 0, 0, GRID_SIZE, GRID_SIZE, GRID_SIZE);
 	public final int x, y;
@@ -31,13 +42,42 @@ public class GridTile
 		this.y = y;
 	}
 	
+	/** Returns the tile at the given position, reusing a shared instance for positions near the origin */
+	public static GridTile of(int x, int y)
+	{
+		int cX = x + CACHE_RADIUS, cY = y + CACHE_RADIUS;
+		if(cX >= 0 && cY >= 0 && cX < 2 * CACHE_RADIUS && cY < 2 * CACHE_RADIUS)
+			return CACHE[cY * 2 * CACHE_RADIUS + cX];
+		return new GridTile(x, y);
+	}
+	
+	public static GridTile fromLong(long packed) { return of(unpackX(packed), unpackY(packed)); }
+	
+	/** Packs the given coordinates into a single long, X in the upper half and Y in the lower */
+	public static long asLong(int x, int y) { return ((long)x << 32) | (y & 0xFFFFFFFFL); }
+	
+	public static int unpackX(long packed) { return (int)(packed >> 32); }
+	
+	public static int unpackY(long packed) { return (int)packed; }
+	
+	/** Offsets a packed position without allocating */
+	public static long add(long packed, int xIn, int yIn) { return asLong(unpackX(packed) + xIn, unpackY(packed) + yIn); }
+	
+	/** Offsets a packed position in the given direction without allocating */
+	public static long offset(long packed, Direction dir) { return add(packed, dir.getOffsetX(), dir.getOffsetZ()); }
+	
+	public long asLong() { return asLong(x, y); }
+	
 	public String toString() { return "GridTile"+shortString(); }
 	
 	public String shortString() { return "["+x+", "+y+"]"; }
 	
-	public boolean equals(Object obj) { return obj instanceof GridTile && manhattanDistance((GridTile)obj) == 0; }
+	public boolean equals(Object obj) { return obj == this || obj instanceof GridTile && ((GridTile)obj).x == x && ((GridTile)obj).y == y; }
+	
+	public int hashCode() { return Long.hashCode(HashCommon.mix(asLong())); }
 	
-	public GridTile copy() { return new GridTile(x, y); }
+	/** GridTiles are immutable, so this simply returns the same instance */
+	public GridTile copy() { return this; }
 	
 	public static Comparator<GridTile> distSort(GridTile target)
 	{
@@ -73,7 +113,7 @@ public class GridTile
 	
 	public static GridTile fromVec(Vec2f vec)
 	{
-		return new GridTile(
+		return of(
 				(int)(vec.x - vec.x%GRID_SIZE), 
 				(int)(vec.y - vec.y%GRID_SIZE)
 				);
@@ -131,21 +171,20 @@ public class GridTile
 	public GridTile offset(@Nullable Direction dir, int distance)
 	{
 		if(dir == null || distance == 0)
-			return copy();
+			return this;
 		else
-			return new GridTile(x + dir.getOffsetX() * distance, y + dir.getOffsetZ() * distance);
+			return of(x + dir.getOffsetX() * distance, y + dir.getOffsetZ() * distance);
 	}
 	
 	@Nullable
 	public Direction directionTo(GridTile tile)
 	{
-		Vector2i vec = tile.toVec2i().sub(toVec2i());
-		return Direction.fromVector(vec.x, 0, vec.y, null);
+		return Direction.fromVector(tile.x - x, 0, tile.y - y, null);
 	}
 	
 	public GridTile add(Vector2i vec) { return add(vec.x, vec.y); }
 	
-	public GridTile add(int xIn, int yIn) { return new GridTile(x + xIn, y + yIn); }
+	public GridTile add(int xIn, int yIn) { return xIn == 0 && yIn == 0 ? this : of(x + xIn, y + yIn); }
 	
 	public GridTile add(GridTile tile) { return add(tile.x, tile.y); }
 	
@@ -153,9 +192,11 @@ public class GridTile
 	
 	public GridTile sub(int xIn, int yIn) { return add(-xIn, -yIn); }
 	
+	public GridTile sub(GridTile tile) { return sub(tile.x, tile.y); }
+	
 	public BlockPos toPos(int yIn) { return new BlockPos(x, yIn, y); }
 	
-	public GridTile mul(int scalar) { return new GridTile(x * scalar, y * scalar); }
+	public GridTile mul(int scalar) { return of(x * scalar, y * scalar); }
 	
 	@Nullable
 	public static GridTile findClosestTo(List<GridTile> tiles, @Nullable GridTile target)
@@ -0,0 +1,152 @@
+package com.lying.grid;
+
+import java.util.Arrays;
+import java.util.function.IntToLongFunction;
+import java.util.function.LongToIntFunction;
+
+import it.unimi.dsi.fastutil.longs.Long2IntLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+
+/** Primitive storage of integer tile IDs against packed long coordinates */
+public abstract class TileStorage
+{
+	/** Returned when no tile is stored at a position */
+	public static final int ABSENT = -1;
+	
+	/** Returns the ID stored at the given position, or {@link #ABSENT} */
+	public abstract int get(long key);
+	
+	public boolean contains(long key) { return get(key) != ABSENT; }
+	
+	/** Stores the given ID, returning the previously stored ID or {@link #ABSENT} */
+	public abstract int put(long key, int id);
+	
+	/** Removes the given position, returning the previously stored ID or {@link #ABSENT} */
+	public abstract int remove(long key);
+	
+	/** Returns true if this storage is able to hold the given position */
+	public abstract boolean accepts(long key);
+	
+	public abstract int size();
+	
+	public abstract void clear();
+	
+	/** Iterates over all stored positions in a stable order */
+	public abstract void forEach(EntryConsumer action);
+	
+	/** Creates a copy of this storage able to hold any position */
+	public TileStorage toSparse()
+	{
+		Sparse sparse = new Sparse();
+		forEach(sparse::put);
+		return sparse;
+	}
+	
+	@FunctionalInterface
+	public static interface EntryConsumer
+	{
+		public void accept(long key, int id);
+	}
+	
+	/** Open-addressing hash storage, iterated in order of insertion */
+	public static class Sparse extends TileStorage
+	{
+		private final Long2IntLinkedOpenHashMap map = new Long2IntLinkedOpenHashMap();
+		
+		public Sparse()
+		{
+			map.defaultReturnValue(ABSENT);
+		}
+		
+		public int get(long key) { return map.get(key); }
+		
+		public boolean contains(long key) { return map.containsKey(key); }
+		
+		public int put(long key, int id) { return map.put(key, id); }
+		
+		public int remove(long key) { return map.remove(key); }
+		
+		public boolean accepts(long key) { return true; }
+		
+		public int size() { return map.size(); }
+		
+		public void clear() { map.clear(); }
+		
+		public void forEach(EntryConsumer action)
+		{
+			for(Long2IntMap.Entry entry : map.long2IntEntrySet())
+				action.accept(entry.getLongKey(), entry.getIntValue());
+		}
+	}
+	
+	/** Array-backed storage for a fixed volume, iterated in order of array index */
+	public static class Dense extends TileStorage
+	{
+		private final int[] ids;
+		private final LongToIntFunction indexOf;
+		private final IntToLongFunction keyOf;
+		private int size = 0;
+		
+		/**
+		 * @param volume Total number of positions within the bounds
+		 * @param indexOfIn Converts a packed position to its array index, or -1 if it is out of bounds
+		 * @param keyOfIn Converts an array index back into a packed position
+		 */
+		public Dense(int volume, LongToIntFunction indexOfIn, IntToLongFunction keyOfIn)
+		{
+			ids = new int[volume];
+			Arrays.fill(ids, ABSENT);
+			indexOf = indexOfIn;
+			keyOf = keyOfIn;
+		}
+		
+		public int get(long key)
+		{
+			int index = indexOf.applyAsInt(key);
+			return index < 0 ? ABSENT : ids[index];
+		}
+		
+		public int put(long key, int id)
+		{
+			int index = indexOf.applyAsInt(key);
+			if(index < 0)
+				throw new IllegalArgumentException("Position outside of dense tile storage");
+			
+			int prev = ids[index];
+			ids[index] = id;
+			if(prev == ABSENT)
+				++size;
+			return prev;
+		}
+		
+		public int remove(long key)
+		{
+			int index = indexOf.applyAsInt(key);
+			if(index < 0)
+				return ABSENT;
+			
+			int prev = ids[index];
+			ids[index] = ABSENT;
+			if(prev != ABSENT)
+				--size;
+			return prev;
+		}
+		
+		public boolean accepts(long key) { return indexOf.applyAsInt(key) >= 0; }
+		
+		public int size() { return size; }
+		
+		public void clear()
+		{
+			Arrays.fill(ids, ABSENT);
+			size = 0;
+		}
+		
+		public void forEach(EntryConsumer action)
+		{
+			for(int i=0; i<ids.length; i++)
+				if(ids[i] != ABSENT)
+					action.accept(keyOf.applyAsLong(i), ids[i]);
+		}
+	}
+}
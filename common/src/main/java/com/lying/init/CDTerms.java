@@ -86,6 +86,14 @@ public class CDTerms implements ReloadListener<List<JsonObject>>
 		CyclicDungeons.LOGGER.info(" # Initialised grammar term registry");
 	}
 	
+	/** Creates the registry without listening for datapack reloads, for use outside of a running game */
+	public static CDTerms headless()
+	{
+		if(INSTANCE == null)
+			INSTANCE = new CDTerms();
+		return INSTANCE;
+	}
+	
 	public static CDTerms instance() { return INSTANCE; }
 	
 	public Identifier getId() { return prefix(FILE_PATH); }
@@ -20,8 +20,10 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import com.lying.CyclicDungeons;
 import com.lying.data.ReloadListener;
+import com.lying.worldgen.TilePatternCache;
 import com.lying.worldgen.theme.DefaultThemes;
 import com.lying.worldgen.theme.Theme;
+import com.lying.worldgen.tile.StructureTileCache;
 import com.mojang.serialization.JsonOps;
 
 import dev.architectury.registry.ReloadListenerRegistry;
@@ -50,6 +52,14 @@ public class CDThemes implements ReloadListener<List<JsonObject>>
 		CyclicDungeons.LOGGER.info(" # Initialised dungeon theme registry");
 	}
 	
+	/** Creates the registry without listening for datapack reloads, for use outside of a running game */
+	public static CDThemes headless()
+	{
+		if(INSTANCE == null)
+			INSTANCE = new CDThemes();
+		return INSTANCE;
+	}
+	
 	public Identifier getId()
 	{
 		return prefix(FILE_PATH);
@@ -101,6 +111,8 @@ public class CDThemes implements ReloadListener<List<JsonObject>>
 			reset();
 			data.forEach(prep -> register(Theme.fromJson(JsonOps.INSTANCE, prep)));
 			CyclicDungeons.LOGGER.info(" # {} themes loaded", REGISTRY.size());
+			TilePatternCache.clear();
+			StructureTileCache.clear();
 		});
 	}
 }
@@ -12,10 +12,12 @@ import org.jetbrains.annotations.NotNull;
 
 import com.lying.CyclicDungeons;
 import com.lying.grid.BlueprintTileGrid;
+import com.lying.grid.TileStorage;
 import com.lying.worldgen.tile.Tile;
 import com.lying.worldgen.tile.condition.Adjacent;
 import com.lying.worldgen.tile.condition.Boolean;
 import com.lying.worldgen.tile.condition.Boundary;
+import com.lying.worldgen.tile.condition.CompiledCondition;
 import com.lying.worldgen.tile.condition.Condition;
 import com.lying.worldgen.tile.condition.Consecutive;
 import com.lying.worldgen.tile.condition.IsAnyOf;
@@ -38,10 +40,22 @@ public class CDTileConditions
 	public static final Supplier<Condition> NEVER			= register("never", id -> new Condition(id)
 	{
 		public boolean test(Tile tileIn, BlockPos pos, BlueprintTileGrid set) { return false; }
+		
+		public int radius() { return 0; }
+		
+		public CompiledCondition compile() { return CompiledCondition.NEVER; }
+		
+		public int cost() { return 0; }
 	});
 	public static final Supplier<Condition> ALWAYS			= register("always", id -> new Condition(id)
 	{
 		public boolean test(Tile tileIn, BlockPos pos, BlueprintTileGrid set) { return true; }
+		
+		public int radius() { return 0; }
+		
+		public CompiledCondition compile() { return CompiledCondition.ALWAYS; }
+		
+		public int cost() { return 0; }
 	});
 	
 	// Conditions for boolean logic applications
@@ -66,14 +80,39 @@ public class CDTileConditions
 				(tile = set.get(down)).isPresent() &&
 				CDTileTags.get(CDTileTags.ID_SOLID_FLOORING).get().contains(tile.get());
 		}
+		
+		public int radius() { return 1; }
+		
+		public CompiledCondition compile()
+		{
+			return (tile, key, grid) -> 
+			{
+				int id = grid.idAt(BlockPos.offset(key, Direction.DOWN));
+				return id != TileStorage.ABSENT && CDTileTags.get(CDTileTags.ID_SOLID_FLOORING).get().contains(grid.tileOf(id));
+			};
+		}
+		
+		public int cost() { return 2; }
 	});
 	public static final Supplier<Condition> ON_BOTTOM		= register("on_bottom", id -> new Condition(id)
 	{
 		public boolean test(Tile tileIn, BlockPos pos, BlueprintTileGrid set) { return set.isBoundary(pos, Direction.DOWN); }
+		
+		public int radius() { return 0; }
+		
+		public CompiledCondition compile() { return (tile, key, grid) -> grid.isBoundary(key, Direction.DOWN); }
+		
+		public int cost() { return 1; }
 	});
 	public static final Supplier<Condition> ON_TOP			= register("on_top", id -> new Condition(id)
 	{
 		public boolean test(Tile tileIn, BlockPos pos, BlueprintTileGrid set) { return set.isBoundary(pos, Direction.UP); }
+		
+		public int radius() { return 0; }
+		
+		public CompiledCondition compile() { return (tile, key, grid) -> grid.isBoundary(key, Direction.UP); }
+		
+		public int cost() { return 1; }
 	});
 	public static final Supplier<Condition> BOUNDARY		= register("boundary", Boundary::new);
 	public static final Supplier<Condition> NON_BOUNDARY	= register("non_boundary", Boundary.Inverse::new);
@@ -19,6 +19,7 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import com.lying.CyclicDungeons;
 import com.lying.data.ReloadListener;
+import com.lying.worldgen.TilePatternCache;
 import com.lying.worldgen.tileset.TileSet;
 import com.mojang.serialization.JsonOps;
 
@@ -50,6 +51,14 @@ public class CDTileSets implements ReloadListener<List<JsonObject>>
 		CyclicDungeons.LOGGER.info(" # Initialised tile set registry");
 	}
 	
+	/** Creates the registry without listening for datapack reloads, for use outside of a running game */
+	public static CDTileSets headless()
+	{
+		if(INSTANCE == null)
+			INSTANCE = new CDTileSets();
+		return INSTANCE;
+	}
+	
 	public Identifier getId()
 	{
 		return prefix(FILE_PATH);
@@ -92,6 +101,7 @@ public class CDTileSets implements ReloadListener<List<JsonObject>>
 			REGISTRY.clear();
 			data.forEach(prep -> register(TileSet.decode(JsonOps.INSTANCE, prep)));
 			CyclicDungeons.LOGGER.info(" # {} tile sets loaded", REGISTRY.size());
+			TilePatternCache.clear();
 		});
 	}
 }
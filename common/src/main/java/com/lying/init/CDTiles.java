@@ -12,13 +12,17 @@ import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 
 import com.google.common.base.Predicates;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.Lists;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import com.lying.CyclicDungeons;
 import com.lying.data.ReloadListener;
+import com.lying.worldgen.TilePatternCache;
+import com.lying.worldgen.tile.StructureTileCache;
 import com.lying.worldgen.tile.Tile;
+import com.lying.worldgen.tile.TilePalette;
 import com.lying.worldgen.tile.TilePredicate;
 import com.lying.worldgen.tile.condition.Boundary;
 import com.lying.worldgen.tile.condition.Not;
@@ -50,37 +54,40 @@ public class CDTiles implements ReloadListener<List<JsonObject>>
 		ID_DOORWAY_LINTEL	= prefix("doorway_lintel");
 	
 	/** Blank tile, used during generation */
-	public static final Supplier<Tile> BLANK	= () -> Tile.Builder
+	public static final Supplier<Tile> BLANK	= Suppliers.memoize(() -> Tile.Builder
 			.of(TilePredicate.fromCondition(CDTileConditions.NEVER.get()))
-			.asFlag().build().apply(ID_BLANK);
+			.asFlag().build().apply(ID_BLANK));
 	
 	/** Air tile, hard-coded default if no other is found */
-	public static final Supplier<Tile> AIR		= () -> Tile.Builder
+	public static final Supplier<Tile> AIR		= Suppliers.memoize(() -> Tile.Builder
 			.of(TilePredicate.fromCondition(Not.of(CDTileConditions.ON_BOTTOM.get())))
-			.asAir().build().apply(ID_AIR);
+			.asAir().build().apply(ID_AIR));
 	
 	/** Solid rock, hard-coded default if no other is found */
-	public static final Supplier<Tile> STONE	= () -> Tile.Builder
+	public static final Supplier<Tile> STONE	= Suppliers.memoize(() -> Tile.Builder
 			.of(TilePredicate.fromCondition(CDTileConditions.ON_BOTTOM.get()))
-			.asBlock(Blocks.STONE.getDefaultState()).build().apply(ID_STONE);
+			.asBlock(Blocks.STONE.getDefaultState()).build().apply(ID_STONE));
 	
 	/** Flag tile placed either side of doorways to ensure navigability */
-	public static final Supplier<Tile> PASSAGE_FLAG	= () -> Tile.Builder
+	public static final Supplier<Tile> PASSAGE_FLAG	= Suppliers.memoize(() -> Tile.Builder
 			.of(TilePredicate.fromCondition(Boundary.of(Direction.Type.HORIZONTAL)))
-			.asAir().build().apply(ID_PASSAGE_FLAG);
+			.asAir().build().apply(ID_PASSAGE_FLAG));
 	
-	public static final Supplier<Tile> DOORWAY	= () -> Tile.Builder
+	public static final Supplier<Tile> DOORWAY	= Suppliers.memoize(() -> Tile.Builder
 			.of(TilePredicate.fromCondition(Boundary.of(Direction.Type.HORIZONTAL)))
 			.asStructure()
-			.build().apply(ID_DOORWAY);
+			.build().apply(ID_DOORWAY));
 	
-	public static final Supplier<Tile> DOORWAY_LINTEL	= () -> Tile.Builder
+	public static final Supplier<Tile> DOORWAY_LINTEL	= Suppliers.memoize(() -> Tile.Builder
 			.of(TilePredicate.fromCondition(Boundary.of(Direction.Type.HORIZONTAL)))
 			.asStructure()
-			.build().apply(ID_DOORWAY_LINTEL);
+			.build().apply(ID_DOORWAY_LINTEL));
 	
 	public static CDTiles instance() { return INSTANCE; }
 	
+	/** Returns the hard-coded tiles, used before any datapack has been loaded */
+	public static List<Tile> defaults() { return List.of(BLANK.get(), AIR.get(), STONE.get(), PASSAGE_FLAG.get(), DOORWAY.get(), DOORWAY_LINTEL.get()); }
+	
 	public static void init()
 	{
 		INSTANCE = new CDTiles();
@@ -88,6 +95,14 @@ public class CDTiles implements ReloadListener<List<JsonObject>>
 		CyclicDungeons.LOGGER.info(" # Initialised tile registry");
 	}
 	
+	/** Creates the registry without listening for datapack reloads, for use outside of a running game */
+	public static CDTiles headless()
+	{
+		if(INSTANCE == null)
+			INSTANCE = new CDTiles();
+		return INSTANCE;
+	}
+	
 	public void register(Tile tileIn)
 	{
 		REGISTRY.put(tileIn.registryName(), () -> tileIn);
@@ -152,6 +167,9 @@ public class CDTiles implements ReloadListener<List<JsonObject>>
 			data.forEach(prep -> register(Tile.readFromJson(prep, JsonOps.INSTANCE)));
 			CyclicDungeons.LOGGER.info(" # Loaded {} tiles from datapack", REGISTRY.size());
 			CDTileTags.reload();
+			TilePalette.freeze(getAll());
+			TilePatternCache.clear();
+			StructureTileCache.clear();
 		});
 	}
 }
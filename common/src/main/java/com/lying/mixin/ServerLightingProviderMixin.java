@@ -0,0 +1,38 @@
+package com.lying.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+
+import com.lying.worldgen.LightCheckBatcher;
+
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.server.world.ServerLightingProvider;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.chunk.ChunkProvider;
+import net.minecraft.world.chunk.light.LightingProvider;
+
+@Mixin(ServerLightingProvider.class)
+public abstract class ServerLightingProviderMixin extends LightingProvider implements LightCheckBatcher
+{
+	private ServerLightingProviderMixin(ChunkProvider chunkProvider, boolean hasBlockLight, boolean hasSkyLight)
+	{
+		super(chunkProvider, hasBlockLight, hasSkyLight);
+	}
+	
+	@Shadow
+	private void enqueue(int x, int z, ServerLightingProvider.Stage stage, Runnable task) { }
+	
+	public void cydun$checkBlocks(ChunkSectionPos section, LongList positions)
+	{
+		enqueue(section.getSectionX(), section.getSectionZ(), ServerLightingProvider.Stage.PRE_UPDATE, () -> cydun$checkAll(positions));
+	}
+	
+	/** Performs each check directly, as {@link ServerLightingProvider#checkBlock} would once its own queued task runs */
+	private void cydun$checkAll(LongList positions)
+	{
+		final BlockPos.Mutable pos = new BlockPos.Mutable();
+		for(int i=0; i<positions.size(); i++)
+			super.checkBlock(pos.set(positions.getLong(i)));
+	}
+}
@@ -0,0 +1,89 @@
+package com.lying.utility.geometry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+/**
+ * A uniform grid of objects by their integer bounds, for quickly finding objects near a given area.<br>
+ * Objects are tracked by identity.
+ */
+public class SpatialGrid<T>
+{
+	private final int cellSize;
+	private final Long2ObjectMap<List<T>> cells = new Long2ObjectOpenHashMap<>();
+	/** Range of cells occupied by each object, as min X, min Y, max X, max Y */
+	private final Map<T, int[]> occupancy = Maps.newIdentityHashMap();
+	
+	public SpatialGrid(int cellSizeIn)
+	{
+		cellSize = Math.max(1, cellSizeIn);
+	}
+	
+	public int size() { return occupancy.size(); }
+	
+	public void clear()
+	{
+		cells.clear();
+		occupancy.clear();
+	}
+	
+	/** Adds the given object with the given inclusive bounds, replacing any bounds it previously had */
+	public void put(T obj, int minX, int minY, int maxX, int maxY)
+	{
+		remove(obj);
+		int[] range = new int[] {cell(minX), cell(minY), cell(maxX), cell(maxY)};
+		occupancy.put(obj, range);
+		for(int x=range[0]; x<=range[2]; x++)
+			for(int y=range[1]; y<=range[3]; y++)
+				cells.computeIfAbsent(key(x, y), k -> Lists.newArrayList()).add(obj);
+	}
+	
+	public void remove(T obj)
+	{
+		int[] range = occupancy.remove(obj);
+		if(range == null)
+			return;
+		
+		for(int x=range[0]; x<=range[2]; x++)
+			for(int y=range[1]; y<=range[3]; y++)
+			{
+				long key = key(x, y);
+				List<T> cell = cells.get(key);
+				if(cell == null)
+					continue;
+				
+				cell.removeIf(o -> o == obj);
+				if(cell.isEmpty())
+					cells.remove(key);
+			}
+	}
+	
+	/** Returns every object sharing a cell with the given inclusive bounds, each listed once */
+	public List<T> query(int minX, int minY, int maxX, int maxY)
+	{
+		List<T> results = Lists.newArrayList();
+		Set<T> found = Sets.newIdentityHashSet();
+		for(int x=cell(minX); x<=cell(maxX); x++)
+			for(int y=cell(minY); y<=cell(maxY); y++)
+			{
+				List<T> cell = cells.get(key(x, y));
+				if(cell != null)
+					for(T obj : cell)
+						if(found.add(obj))
+							results.add(obj);
+			}
+		return results;
+	}
+	
+	private int cell(int value) { return Math.floorDiv(value, cellSize); }
+	
+	private static long key(int x, int y) { return ((long)x << 32) | (y & 0xFFFFFFFFL); }
+}
@@ -0,0 +1,238 @@
+package com.lying.utility.geometry;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.MathHelper;
+
+/**
+ * A fixed-size 3D bitset of block positions.<br>
+ * Bits are ordered X-first, then Z, then Y.
+ */
+public class VoxelMask implements Iterable<BlockPos>
+{
+	private final int minX, minY, minZ;
+	private final int sizeX, sizeY, sizeZ;
+	private final BitSet bits;
+	
+	/** Creates an empty mask covering the given inclusive bounds */
+	public VoxelMask(BlockPos min, BlockPos max)
+	{
+		this(min.getX(), min.getY(), min.getZ(), max.getX() - min.getX() + 1, max.getY() - min.getY() + 1, max.getZ() - min.getZ() + 1);
+	}
+	
+	private VoxelMask(int minXIn, int minYIn, int minZIn, int sizeXIn, int sizeYIn, int sizeZIn)
+	{
+		minX = minXIn;
+		minY = minYIn;
+		minZ = minZIn;
+		sizeX = Math.max(1, sizeXIn);
+		sizeY = Math.max(1, sizeYIn);
+		sizeZ = Math.max(1, sizeZIn);
+		bits = new BitSet(volume());
+	}
+	
+	/**
+	 * Creates an empty mask enclosing all blocks within the given boxes
+	 * @param margin Number of additional blocks to include on every side
+	 */
+	public static VoxelMask enclosing(Collection<Box> boxes, int margin)
+	{
+		if(boxes.isEmpty())
+			return new VoxelMask(BlockPos.ORIGIN, BlockPos.ORIGIN);
+		
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+		for(Box box : boxes)
+		{
+			minX = Math.min(minX, blockMin(box.minX));
+			minY = Math.min(minY, blockMin(box.minY));
+			minZ = Math.min(minZ, blockMin(box.minZ));
+			maxX = Math.max(maxX, blockMax(box.maxX));
+			maxY = Math.max(maxY, blockMax(box.maxY));
+			maxZ = Math.max(maxZ, blockMax(box.maxZ));
+		}
+		return new VoxelMask(new BlockPos(minX - margin, minY - margin, minZ - margin), new BlockPos(maxX + margin, maxY + margin, maxZ + margin));
+	}
+	
+	/** Lowest block coordinate whose centre lies within a box starting at the given value */
+	private static int blockMin(double min) { return MathHelper.ceil(min - 0.5D); }
+	
+	/** Highest block coordinate whose centre lies within a box ending at the given value */
+	private static int blockMax(double max) { return MathHelper.ceil(max - 0.5D) - 1; }
+	
+	public int volume() { return sizeX * sizeY * sizeZ; }
+	
+	public int cardinality() { return bits.cardinality(); }
+	
+	public boolean isEmpty() { return bits.isEmpty(); }
+	
+	public boolean contains(int x, int y, int z)
+	{
+		return x >= minX && x < minX + sizeX && y >= minY && y < minY + sizeY && z >= minZ && z < minZ + sizeZ;
+	}
+	
+	public boolean get(int x, int y, int z)
+	{
+		return contains(x, y, z) && bits.get(indexOf(x, y, z));
+	}
+	
+	public boolean get(BlockPos pos) { return get(pos.getX(), pos.getY(), pos.getZ()); }
+	
+	public void set(int x, int y, int z)
+	{
+		if(contains(x, y, z))
+			bits.set(indexOf(x, y, z));
+	}
+	
+	/** Sets every block whose centre lies within the given box, matching {@link Box#contains} */
+	public void fill(Box box)
+	{
+		int x0 = Math.max(minX, blockMin(box.minX)), x1 = Math.min(minX + sizeX - 1, blockMax(box.maxX));
+		int y0 = Math.max(minY, blockMin(box.minY)), y1 = Math.min(minY + sizeY - 1, blockMax(box.maxY));
+		int z0 = Math.max(minZ, blockMin(box.minZ)), z1 = Math.min(minZ + sizeZ - 1, blockMax(box.maxZ));
+		if(x0 > x1)
+			return;
+		
+		for(int y=y0; y<=y1; y++)
+			for(int z=z0; z<=z1; z++)
+				bits.set(indexOf(x0, y, z), indexOf(x1, y, z) + 1);
+	}
+	
+	/**
+	 * Returns a copy of this mask expanded by one block in all directions, including diagonals.<br>
+	 * Bits on the outer faces of the mask are not expanded beyond its bounds.
+	 */
+	public VoxelMask dilate()
+	{
+		long[] words = toWords();
+		words = dilate(words, 1, sizeX);
+		words = dilate(words, sizeX, sizeZ);
+		words = dilate(words, sizeX * sizeZ, sizeY);
+		
+		VoxelMask result = new VoxelMask(minX, minY, minZ, sizeX, sizeY, sizeZ);
+		result.bits.or(BitSet.valueOf(words));
+		return result;
+	}
+	
+	/** Removes all bits set in the given mask, which must share the bounds of this mask */
+	public VoxelMask andNot(VoxelMask other)
+	{
+		bits.andNot(other.bits);
+		return this;
+	}
+	
+	/** Iterates over all set positions, reusing a single mutable position */
+	public Iterator<BlockPos> iterator()
+	{
+		return new Iterator<BlockPos>()
+		{
+			private final BlockPos.Mutable pos = new BlockPos.Mutable();
+			private int next = bits.nextSetBit(0);
+			
+			public boolean hasNext() { return next >= 0; }
+			
+			public BlockPos next()
+			{
+				if(next < 0)
+					throw new NoSuchElementException();
+				
+				int index = next;
+				next = bits.nextSetBit(index + 1);
+				int x = index % sizeX;
+				int z = (index / sizeX) % sizeZ;
+				int y = index / (sizeX * sizeZ);
+				return pos.set(minX + x, minY + y, minZ + z);
+			}
+		};
+	}
+	
+	private int indexOf(int x, int y, int z)
+	{
+		return ((y - minY) * sizeZ + (z - minZ)) * sizeX + (x - minX);
+	}
+	
+	private long[] toWords()
+	{
+		long[] words = new long[(volume() + 63) >> 6];
+		long[] set = bits.toLongArray();
+		System.arraycopy(set, 0, words, 0, Math.min(set.length, words.length));
+		return words;
+	}
+	
+	/**
+	 * Expands all bits by one step along a single axis
+	 * @param stride Distance between neighbouring bits along the axis
+	 * @param length Number of positions along the axis
+	 */
+	private long[] dilate(long[] words, int stride, int length)
+	{
+		if(length < 2)
+			return words;
+		
+		long[] result = words.clone();
+		orShifted(words, result, stride);
+		orShifted(words, result, -stride);
+		// Shifting along X or Z wraps bits between neighbouring lines, so recalculate the ends of each line
+		if(stride < sizeX * sizeZ)
+			clearWrapped(words, result, stride, length);
+		
+		// Discard any bits shifted past the end of the volume, so later passes cannot shift them back in
+		int excess = volume() & 63;
+		if(excess != 0)
+			result[result.length - 1] &= (1L << excess) - 1;
+		return result;
+	}
+	
+	/** Recalculates the first and last bit of each line along the given axis, which may have received bits wrapped from neighbouring lines */
+	private void clearWrapped(long[] source, long[] result, int stride, int length)
+	{
+		final int lines = volume() / length;
+		for(int line = 0; line < lines; line++)
+		{
+			int start = stride == 1 ? line * sizeX : (line / sizeX) * sizeX * sizeZ + (line % sizeX);
+			int end = start + (length - 1) * stride;
+			setBit(result, start, isSet(source, start) || isSet(source, start + stride));
+			setBit(result, end, isSet(source, end) || isSet(source, end - stride));
+		}
+	}
+	
+	private static void setBit(long[] words, int index, boolean value)
+	{
+		if(value)
+			words[index >> 6] |= 1L << index;
+		else
+			words[index >> 6] &= ~(1L << index);
+	}
+	
+	private static boolean isSet(long[] words, int index) { return (words[index >> 6] & (1L << index)) != 0; }
+	
+	/** Bitwise-ors the source into the destination, offset by the given number of bits */
+	private static void orShifted(long[] src, long[] dst, int shift)
+	{
+		int wordShift = Math.abs(shift) >> 6;
+		int bitShift = Math.abs(shift) & 63;
+		if(shift > 0)
+			for(int i = dst.length - 1; i >= wordShift; i--)
+			{
+				int j = i - wordShift;
+				long value = src[j] << bitShift;
+				if(bitShift != 0 && j > 0)
+					value |= src[j - 1] >>> (64 - bitShift);
+				dst[i] |= value;
+			}
+		else
+			for(int i = 0; i + wordShift < src.length; i++)
+			{
+				int j = i + wordShift;
+				long value = src[j] >>> bitShift;
+				if(bitShift != 0 && j + 1 < src.length)
+					value |= src[j + 1] << (64 - bitShift);
+				dst[i] |= value;
+			}
+	}
+}
@@ -12,6 +12,9 @@ public class DataLog
 	
 	public void clear() { entries.clear(); }
 	
+	/** Adds all entries of the given log to the end of this one */
+	public void append(DataLog log) { entries.addAll(log.entries); }
+	
 	public void info(String format, Object... args)
 	{
 		entries.add(new LogEntry(LogEntry.Type.INFO, format, args));
@@ -0,0 +1,11 @@
+package com.lying.worldgen;
+
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.util.math.ChunkSectionPos;
+
+/** Implemented by the server lighting provider, to queue the light checks of an entire section as a single task */
+public interface LightCheckBatcher
+{
+	/** Queues a light check of each of the given packed block positions within the given section, processed together on the lighting thread */
+	public void cydun$checkBlocks(ChunkSectionPos section, LongList positions);
+}
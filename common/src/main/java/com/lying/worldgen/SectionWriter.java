@@ -0,0 +1,218 @@
+package com.lying.worldgen;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+import com.google.common.collect.Lists;
+import com.lying.init.CDLoggers;
+import com.lying.utility.logging.DebugLogger;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.shorts.ShortOpenHashSet;
+import it.unimi.dsi.fastutil.shorts.ShortSet;
+import net.minecraft.block.BlockState;
+import net.minecraft.network.packet.s2c.play.ChunkDeltaUpdateS2CPacket;
+import net.minecraft.registry.tag.BlockTags;
+import net.minecraft.server.world.ServerChunkManager;
+import net.minecraft.server.world.ServerLightingProvider;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.Heightmap;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
+import net.minecraft.world.chunk.light.LightingProvider;
+import net.minecraft.world.poi.PointOfInterestTypes;
+
+/**
+ * Buffers block placements and writes them directly into chunk sections in bulk.<br>
+ * Placements never replace blocks in the {@link BlockTags#WITHER_IMMUNE} tag, matching {@link com.lying.worldgen.tile.Tile#tryPlace}.<br>
+ * Neighbour updates are not performed. Placements involving block entities or points of interest fall back to {@link ServerWorld#setBlockState}.<br>
+ * Once a section is written, its light checks are queued as one task, its heightmaps are refreshed once per affected column,
+ * and its changes are sent to watching players as a single update.
+ */
+public class SectionWriter
+{
+	public static final DebugLogger LOGGER = CDLoggers.WORLDGEN;
+	private static final int SECTION_VOLUME = 16 * 16 * 16;
+	private static final Heightmap.Type[] HEIGHTMAPS = new Heightmap.Type[]
+			{
+				Heightmap.Type.MOTION_BLOCKING,
+				Heightmap.Type.MOTION_BLOCKING_NO_LEAVES,
+				Heightmap.Type.OCEAN_FLOOR,
+				Heightmap.Type.WORLD_SURFACE
+			};
+	
+	private final ServerWorld world;
+	/** Pending states by section, indexed by position within the section */
+	private final Long2ObjectMap<BlockState[]> sections = new Long2ObjectLinkedOpenHashMap<>();
+	private int pending = 0;
+	
+	public SectionWriter(ServerWorld worldIn)
+	{
+		world = worldIn;
+	}
+	
+	public ServerWorld world() { return world; }
+	
+	/** Number of placements waiting to be written */
+	public int pending() { return pending; }
+	
+	/** Queues the given state for placement, replacing any state already queued at the same position */
+	public void place(BlockPos pos, BlockState state)
+	{
+		BlockState[] states = sections.computeIfAbsent(ChunkSectionPos.toLong(pos), l -> new BlockState[SECTION_VOLUME]);
+		int index = indexOf(pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15);
+		if(states[index] == null)
+			++pending;
+		states[index] = state;
+	}
+	
+	/** Writes all queued placements to the world */
+	public int flush()
+	{
+		int written = 0;
+		for(Long2ObjectMap.Entry<BlockState[]> entry : sections.long2ObjectEntrySet())
+			written += writeSection(ChunkSectionPos.from(entry.getLongKey()), entry.getValue());
+		sections.clear();
+		pending = 0;
+		return written;
+	}
+	
+	private int writeSection(ChunkSectionPos sectionPos, BlockState[] states)
+	{
+		WorldChunk chunk = world.getChunk(sectionPos.getSectionX(), sectionPos.getSectionZ());
+		int sectionIndex = chunk.sectionCoordToIndex(sectionPos.getSectionY());
+		if(sectionIndex < 0 || sectionIndex >= chunk.getSectionArray().length)
+			return 0;
+		
+		ChunkSection section = chunk.getSection(sectionIndex);
+		final ServerChunkManager chunkManager = world.getChunkManager();
+		final ServerLightingProvider lighting = chunkManager.getLightingProvider();
+		final boolean anyImmune = section.hasAny(s -> s.isIn(BlockTags.WITHER_IMMUNE));
+		final BlockPos.Mutable pos = new BlockPos.Mutable();
+		final List<BlockPos> deferred = Lists.newArrayList();
+		
+		// Changed local heights of each column, as bit masks indexed by column
+		final int[] changedColumns = new int[16 * 16];
+		final int[] lightColumns = new int[16 * 16];
+		final LongList lightChecks = new LongArrayList();
+		final ShortSet changed = new ShortOpenHashSet();
+		
+		// Mark the section as populated in advance so that light checks within it are processed
+		if(section.isEmpty())
+			lighting.setSectionStatus(sectionPos, false);
+		
+		section.lock();
+		try
+		{
+			for(int i=0; i<SECTION_VOLUME; i++)
+			{
+				BlockState state = states[i];
+				if(state == null)
+					continue;
+				
+				int x = i & 15, y = (i >> 8) & 15, z = (i >> 4) & 15;
+				BlockState current = section.getBlockState(x, y, z);
+				if(current == state || anyImmune && current.isIn(BlockTags.WITHER_IMMUNE))
+					continue;
+				
+				pos.set(sectionPos.getMinX() + x, sectionPos.getMinY() + y, sectionPos.getMinZ() + z);
+				if(needsWorldUpdate(current) || needsWorldUpdate(state))
+				{
+					deferred.add(pos.toImmutable());
+					continue;
+				}
+				
+				section.setBlockState(x, y, z, state, false);
+				changedColumns[columnOf(x, z)] |= 1 << y;
+				if(LightingProvider.needsLightUpdate(current, state))
+				{
+					lightColumns[columnOf(x, z)] |= 1 << y;
+					lightChecks.add(pos.asLong());
+				}
+				changed.add(ChunkSectionPos.packLocal(pos));
+			}
+		}
+		finally
+		{
+			section.unlock();
+		}
+		
+		final int minY = sectionPos.getMinY();
+		for(int column=0; column<changedColumns.length; column++)
+		{
+			if(changedColumns[column] == 0)
+				continue;
+			
+			int x = column & 15, z = column >> 4;
+			for(Heightmap.Type type : HEIGHTMAPS)
+				refreshHeightmap(chunk.getHeightmap(type), type.getBlockPredicate(), section, minY, x, z, changedColumns[column]);
+			
+			// Sky light sources are updated from the top of the column down, so that each check sees the sources left by the changes above it
+			for(int y=15; y>=0; y--)
+				if((lightColumns[column] & (1 << y)) != 0)
+					chunk.getChunkSkyLight().isSkyLightAccessible(chunk, x, minY + y, z);
+		}
+		
+		if(!lightChecks.isEmpty())
+			((LightCheckBatcher)lighting).cydun$checkBlocks(sectionPos, lightChecks);
+		if(section.isEmpty())
+			lighting.setSectionStatus(sectionPos, true);
+		
+		if(!changed.isEmpty())
+		{
+			chunk.markNeedsSaving();
+			ChunkDeltaUpdateS2CPacket packet = new ChunkDeltaUpdateS2CPacket(sectionPos, changed, section);
+			chunkManager.chunkLoadingManager.getPlayersWatchingChunk(chunk.getPos(), false).forEach(player -> player.networkHandler.sendPacket(packet));
+		}
+		
+		int written = changed.size();
+		for(BlockPos p : deferred)
+			if(world.setBlockState(p, states[indexOf(p.getX() & 15, p.getY() & 15, p.getZ() & 15)]))
+				++written;
+		return written;
+	}
+	
+	/**
+	 * Updates one column of the given heightmap after the blocks at the given local heights of the section have changed.<br>
+	 * If the column's top block no longer matches, the column is first rescanned downward from it.
+	 * The highest changed block that matches is then tracked, in case it is above the top.
+	 */
+	private static void refreshHeightmap(Heightmap heightmap, Predicate<BlockState> predicate, ChunkSection section, int minY, int x, int z, int changedHeights)
+	{
+		final int top = heightmap.get(x, z) - 1 - minY;
+		if(top >= 0 && top < 16 && (changedHeights & (1 << top)) != 0)
+		{
+			BlockState state = section.getBlockState(x, top, z);
+			if(!predicate.test(state))
+				heightmap.trackUpdate(x, minY + top, z, state);
+		}
+		
+		for(int y=15; y>=0; y--)
+		{
+			if((changedHeights & (1 << y)) == 0)
+				continue;
+			
+			BlockState state = section.getBlockState(x, y, z);
+			if(predicate.test(state))
+			{
+				heightmap.trackUpdate(x, minY + y, z, state);
+				return;
+			}
+		}
+	}
+	
+	/** Returns true if placing or replacing the given state must go through the world, to maintain its block entity or point of interest */
+	private static boolean needsWorldUpdate(BlockState state)
+	{
+		return state.hasBlockEntity() || PointOfInterestTypes.getTypeForState(state).isPresent();
+	}
+	
+	private static int indexOf(int x, int y, int z) { return (y << 8) | (z << 4) | x; }
+	
+	private static int columnOf(int x, int z) { return (z << 4) | x; }
+}
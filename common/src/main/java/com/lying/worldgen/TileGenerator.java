@@ -1,23 +1,26 @@
 package com.lying.worldgen;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.function.Supplier;
 
-import org.apache.commons.lang3.tuple.Pair;
-
-import com.google.common.base.Predicates;
 import com.google.common.collect.Lists;
 import com.lying.grid.BlueprintTileGrid;
 import com.lying.init.CDLoggers;
 import com.lying.init.CDTiles;
-import com.lying.utility.CDUtils;
 import com.lying.utility.logging.DebugLogger;
 import com.lying.worldgen.tile.Tile;
+import com.lying.worldgen.tile.condition.Condition;
+import com.lying.worldgen.tileset.CompiledTileSet;
 import com.lying.worldgen.tileset.TileSet;
 
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.random.Random;
 
@@ -76,67 +79,169 @@ public class TileGenerator
 			return;
 		}
 		
-		final List<Tile> candidates = tiles.keys().stream()
-				.filter(Predicates.not(Tile::isBlank))
-				.toList();
+		final CompiledTileSet compiled = tiles.compiled();
 		/**
-		 * Sort open slots by number of available options
+		 * Queue open slots by number of available options
 		 * Pop slot with fewest options
 		 * Assign random viable option (or empty air, if none) to slot
+		 * Re-evaluate options of open slots within sight of the assigned slot
 		 * Repeat until open slots are depleted
 		 */
-		while(!slots.isEmpty())
+		Wave wave = new Wave(slots, map, compiled.candidates());
+		int index;
+		while((index = wave.mostConstrained()) >= 0)
 		{
-			MapEntry entry = getMostConstrained(slots, map, candidates);
+			BitSet options = wave.optionsAt(index);
 			Tile tile;
-			switch(entry.options().size())
+			switch(options.cardinality())
 			{
 				case 0:
 					tile = fallback.get();
 					break;
 				case 1:
-					tile = entry.options().get(0);
+					tile = compiled.candidates().get(options.nextSetBit(0));
 					break;
 				default:
-					tile = selectTile(entry.options(), tiles, rand);
+					tile = compiled.select(options, rand);
 					break;
 			}
 			
 			if(tile != null)
-				map.put(entry.pos(), tile);
-			slots.remove(entry.index());
+			{
+				map.put(slots.get(index), tile);
+				wave.propagate(index);
+			}
 		}
 	}
 	
-	protected static MapEntry getMostConstrained(List<BlockPos> slots, BlueprintTileGrid map, List<Tile> candidates)
+	/**
+	 * Available options of every open slot in a set, stored as bitsets over the candidate tiles.<br>
+	 * When a slot is filled, only the options of open slots within the {@link Tile#conditionRadius} of each candidate are re-evaluated.
+	 */
+	private static class Wave
 	{
-		map.clearOptionCache();
-		MapEntry most = MapEntry.of(slots.get(0), map, candidates);
-		for(int i=0; i<slots.size(); i++)
+		private final List<BlockPos> slots;
+		private final BlueprintTileGrid map;
+		private final List<Tile> candidates;
+		private final int[] radii;
+		/** Largest finite radius of any candidate */
+		private final int reach;
+		/** True if any candidate may be affected by tiles anywhere in the grid */
+		private final boolean global;
+		
+		private final BitSet[] options;
+		private final boolean[] collapsed;
+		/** Incremented whenever a slot's options change, so outdated queue entries can be skipped */
+		private final int[] versions;
+		private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+		private final Long2IntMap indices = new Long2IntOpenHashMap();
+		private int open;
+		
+		public Wave(List<BlockPos> slotsIn, BlueprintTileGrid mapIn, List<Tile> candidatesIn)
 		{
-			BlockPos slotB = slots.get(i);
-			MapEntry entry = new MapEntry(i, slotB, map.getOptionsFor(slotB, candidates));
-			if(entry.size() < most.size())
-				most = entry;
+			slots = slotsIn;
+			map = mapIn;
+			candidates = candidatesIn;
+			radii = candidates.stream().mapToInt(Tile::conditionRadius).toArray();
+			reach = Arrays.stream(radii).filter(r -> r != Condition.GLOBAL).max().orElse(0);
+			global = Arrays.stream(radii).anyMatch(r -> r == Condition.GLOBAL);
+			
+			open = slots.size();
+			options = new BitSet[open];
+			collapsed = new boolean[open];
+			versions = new int[open];
+			indices.defaultReturnValue(-1);
+			for(int i=0; i<open; i++)
+			{
+				BlockPos pos = slots.get(i);
+				indices.put(pos.asLong(), i);
+				
+				BitSet set = new BitSet(candidates.size());
+				for(int c=0; c<candidates.size(); c++)
+					if(candidates.get(c).canExistAt(pos, map))
+						set.set(c);
+				options[i] = set;
+				queue.add(new Entry(i, set.cardinality(), 0));
+			}
 		}
-		return most;
-	}
-	
-	public static Tile selectTile(List<Tile> options, TileSet weights, Random rand)
-	{
-		List<Pair<Tile,Float>> weightedList = Lists.newArrayList();
-		options.forEach(tile -> weightedList.add(Pair.of(tile, (float)weights.get(tile))));
 		
-		return CDUtils.selectFromWeightedList(weightedList, rand.nextFloat());
-	}
-	
-	protected record MapEntry(int index, BlockPos pos, List<Tile> options)
-	{
-		public int size() { return options.size(); }
+		/** Removes and returns the index of the open slot with the fewest options, or -1 if no slots remain */
+		public int mostConstrained()
+		{
+			Entry entry;
+			while((entry = queue.poll()) != null)
+				if(!collapsed[entry.index()] && entry.version() == versions[entry.index()])
+				{
+					collapsed[entry.index()] = true;
+					--open;
+					return entry.index();
+				}
+			return -1;
+		}
+		
+		/** Returns the available options of the given slot, as indices of the candidate tiles */
+		public BitSet optionsAt(int index) { return options[index]; }
 		
-		public static MapEntry of(BlockPos pos, BlueprintTileGrid map, List<Tile> options)
+		/** Re-evaluates the options of all open slots that may be affected by the tile at the given slot */
+		public void propagate(int index)
 		{
-			return new MapEntry(0, pos, map.getOptionsFor(pos, options));
+			final BlockPos origin = slots.get(index);
+			final int span = reach * 2 + 1;
+			if(global || (long)span * span * span >= open)
+			{
+				for(int i=0; i<slots.size(); i++)
+					if(!collapsed[i])
+						revisit(i, distance(origin, slots.get(i)));
+				return;
+			}
+			
+			for(int x=-reach; x<=reach; x++)
+				for(int y=-reach; y<=reach; y++)
+					for(int z=-reach; z<=reach; z++)
+					{
+						int i = indices.get(BlockPos.asLong(origin.getX() + x, origin.getY() + y, origin.getZ() + z));
+						if(i >= 0 && !collapsed[i])
+							revisit(i, Math.max(Math.abs(x), Math.max(Math.abs(y), Math.abs(z))));
+					}
+		}
+		
+		/** Re-evaluates each candidate at the given slot that can see the given distance, requeueing the slot if its options changed */
+		private void revisit(int index, int distance)
+		{
+			if(distance > reach && !global)
+				return;
+			
+			final BlockPos pos = slots.get(index);
+			final BitSet set = options[index];
+			boolean changed = false;
+			for(int c=0; c<candidates.size(); c++)
+				if(radii[c] >= distance)
+				{
+					boolean valid = candidates.get(c).canExistAt(pos, map);
+					if(valid != set.get(c))
+					{
+						set.set(c, valid);
+						changed = true;
+					}
+				}
+			
+			if(changed)
+				queue.add(new Entry(index, set.cardinality(), ++versions[index]));
+		}
+		
+		private static int distance(BlockPos a, BlockPos b)
+		{
+			return Math.max(Math.abs(a.getX() - b.getX()), Math.max(Math.abs(a.getY() - b.getY()), Math.abs(a.getZ() - b.getZ())));
+		}
+		
+		/** Queued slot, ordered by fewest options and then by slot index */
+		private record Entry(int index, int size, int version) implements Comparable<Entry>
+		{
+			public int compareTo(Entry other)
+			{
+				int comp = Integer.compare(size, other.size);
+				return comp == 0 ? Integer.compare(index, other.index) : comp;
+			}
 		}
 	}
 }
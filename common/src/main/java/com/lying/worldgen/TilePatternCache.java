@@ -0,0 +1,131 @@
+package com.lying.worldgen;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.lying.CyclicDungeons;
+import com.lying.grammar.GrammarTerm;
+import com.lying.grid.BlueprintTileGrid;
+import com.lying.init.CDLoggers;
+import com.lying.utility.logging.DebugLogger;
+import com.lying.worldgen.theme.Theme;
+import com.lying.worldgen.tile.Tile;
+import com.lying.worldgen.tileset.TileSet;
+
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.random.Random;
+
+/**
+ * Bounded cache of solved room tile maps, so that rooms sharing a theme, term, footprint, doorways, and pre-processing can reuse earlier solutions.<br>
+ * Each layout keeps several solutions, one of which is selected at random for each room to retain some variety.<br>
+ * Layouts are evicted in least-recently-used order once the configured size is exceeded.
+ */
+public class TilePatternCache
+{
+	public static final DebugLogger LOGGER = CDLoggers.WFC;
+	
+	@SuppressWarnings("serial")
+	private static final Map<Key, List<Pattern>> CACHE = new LinkedHashMap<>(16, 0.75F, true)
+	{
+		protected boolean removeEldestEntry(Map.Entry<Key, List<Pattern>> eldest) { return size() > CyclicDungeons.config.patternCacheSize(); }
+	};
+	
+	/** Discards all cached solutions, such as when the tiles, tile sets, or themes they were solved from are reloaded */
+	public static void clear()
+	{
+		synchronized(CACHE)
+		{
+			CACHE.clear();
+		}
+	}
+	
+	/** Fills the blank positions of the given room map, either from a cached solution or with {@link TileGenerator} */
+	public static void generate(BlueprintTileGrid map, Theme theme, GrammarTerm term, TileSet tiles, Random rand)
+	{
+		final int variants = CyclicDungeons.config.patternCacheVariants();
+		if(CyclicDungeons.config.patternCacheSize() == 0 || map.isEmpty() || map.hasUnregistered())
+		{
+			TileGenerator.generate(map, tiles, rand);
+			return;
+		}
+		
+		final Key key = new Key(theme.registryName(), term.registryName(), tiles.registryName(), map.palette().generation(), map.fingerprint());
+		final int variant = rand.nextInt(variants);
+		Pattern cached = null;
+		synchronized(CACHE)
+		{
+			List<Pattern> patterns = CACHE.get(key);
+			if(patterns != null && variant < patterns.size())
+				cached = patterns.get(variant);
+		}
+		
+		if(cached != null)
+		{
+			LOGGER.info("Reusing cached solution {} for {} room", variant, term.registryName().getPath());
+			cached.applyTo(map);
+			return;
+		}
+		
+		final List<BlockPos> blanks = map.getBlanks();
+		TileGenerator.generate(map, tiles, rand);
+		Pattern solved = Pattern.of(map, blanks);
+		synchronized(CACHE)
+		{
+			List<Pattern> patterns = CACHE.computeIfAbsent(key, k -> Lists.newArrayList());
+			if(patterns.size() < variants)
+				patterns.add(solved);
+		}
+	}
+	
+	/** Identifies a room layout immediately before tile generation */
+	private static record Key(Identifier theme, Identifier term, Identifier tileSet, int palette, long[] fingerprint)
+	{
+		public boolean equals(Object obj)
+		{
+			return obj instanceof Key other &&
+					palette == other.palette &&
+					theme.equals(other.theme) &&
+					term.equals(other.term) &&
+					tileSet.equals(other.tileSet) &&
+					Arrays.equals(fingerprint, other.fingerprint);
+		}
+		
+		public int hashCode()
+		{
+			int hash = theme.hashCode();
+			hash = hash * 31 + term.hashCode();
+			hash = hash * 31 + tileSet.hashCode();
+			hash = hash * 31 + palette;
+			return hash * 31 + Arrays.hashCode(fingerprint);
+		}
+	}
+	
+	/** Tiles assigned by tile generation, by position relative to the minimum corner of the map */
+	private static record Pattern(BlockPos[] positions, Tile[] tiles)
+	{
+		public static Pattern of(BlueprintTileGrid map, List<BlockPos> solved)
+		{
+			final BlockPos min = map.min();
+			BlockPos[] positions = new BlockPos[solved.size()];
+			Tile[] tiles = new Tile[solved.size()];
+			for(int i=0; i<positions.length; i++)
+			{
+				BlockPos pos = solved.get(i);
+				positions[i] = pos.subtract(min);
+				tiles[i] = map.get(pos).orElse(BlueprintTileGrid.BLANK);
+			}
+			return new Pattern(positions, tiles);
+		}
+		
+		public void applyTo(BlueprintTileGrid map)
+		{
+			final BlockPos min = map.min();
+			for(int i=0; i<positions.length; i++)
+				map.put(min.add(positions[i]), tiles[i]);
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package com.lying.worldgen.tile;
+
+import java.util.Map;
+import java.util.Optional;
+
+import com.google.common.collect.Maps;
+import com.lying.worldgen.theme.Theme;
+
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.structure.StructureTemplateManager;
+import net.minecraft.structure.pool.StructurePool;
+import net.minecraft.structure.pool.StructurePoolElement;
+import net.minecraft.util.BlockRotation;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Cache of the structure data resolved when placing {@link Tile.GenStyle#STRUCTURE} tiles, so it is not looked up again for every tile instance.<br>
+ * Holds the template pool of each theme and tile, and the bounding box of each pool element in each rotation.<br>
+ * Cleared whenever themes or tiles are reloaded.
+ */
+public class StructureTileCache
+{
+	private static final Map<PoolKey, Optional<StructurePool>> POOLS = Maps.newConcurrentMap();
+	private static final Map<BoxKey, BlockBox> BOXES = Maps.newConcurrentMap();
+	
+	public static void clear()
+	{
+		POOLS.clear();
+		BOXES.clear();
+	}
+	
+	/** Returns the template pool used by the given tile in the given theme, if it exists */
+	public static Optional<StructurePool> pool(ServerWorld world, Theme theme, Tile tile)
+	{
+		return POOLS.computeIfAbsent(new PoolKey(theme.registryName(), tile.registryName()), key ->
+			world.getRegistryManager().getOrThrow(RegistryKeys.TEMPLATE_POOL).getOptionalValue(Theme.getTilePool(key.theme(), key.tile())));
+	}
+	
+	/** Returns the bounding box of the given element placed at the given position with the given rotation */
+	public static BlockBox boundingBox(StructureTemplateManager manager, StructurePoolElement element, BlockRotation rotation, BlockPos pos)
+	{
+		// Element bounds only depend on position by translation, so are cached relative to the origin
+		BlockBox box = BOXES.computeIfAbsent(new BoxKey(element, rotation), key -> element.getBoundingBox(manager, BlockPos.ORIGIN, rotation));
+		return box.offset(pos.getX(), pos.getY(), pos.getZ());
+	}
+	
+	private static record PoolKey(Identifier theme, Identifier tile) { }
+	
+	/** Pool elements do not override equality, so are compared by identity */
+	private static record BoxKey(StructurePoolElement element, BlockRotation rotation) { }
+}
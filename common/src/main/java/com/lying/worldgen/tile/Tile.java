@@ -13,6 +13,7 @@ import com.lying.grid.BlueprintTileGrid.TileInstance;
 import com.lying.init.CDLoggers;
 import com.lying.init.CDTileTags.TileTag;
 import com.lying.utility.logging.DebugLogger;
+import com.lying.worldgen.SectionWriter;
 import com.lying.init.CDTiles;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.JsonOps;
@@ -20,10 +21,6 @@ import com.mojang.serialization.codecs.RecordCodecBuilder;
 
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
-import net.minecraft.registry.DynamicRegistryManager;
-import net.minecraft.registry.Registry;
-import net.minecraft.registry.RegistryKey;
-import net.minecraft.registry.RegistryKeys;
 import net.minecraft.registry.tag.BlockTags;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.structure.PoolStructurePiece;
@@ -31,7 +28,6 @@ import net.minecraft.structure.StructureLiquidSettings;
 import net.minecraft.structure.StructureTemplateManager;
 import net.minecraft.structure.pool.StructurePool;
 import net.minecraft.structure.pool.StructurePoolElement;
-import net.minecraft.structure.pool.alias.StructurePoolAliasLookup;
 import net.minecraft.util.BlockRotation;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.StringIdentifiable;
@@ -82,6 +78,9 @@ public abstract class Tile
 	private final Optional<List<BlockState>> states;
 	private final RotationSupplier rotator;
 	
+	/** Generation and ID of this tile in the most recent {@link TilePalette} to include it */
+	volatile long paletteSlot = -1L;
+	
 	public Tile(Identifier id, List<Identifier> tagsIn, GenStyle style, Optional<List<BlockState>> states, TilePredicate predicateIn, RotationSupplier rotatorIn)
 	{
 		this.registryName = id;
@@ -104,6 +103,8 @@ public abstract class Tile
 	
 	public final boolean equals(Object obj) { return obj instanceof Tile && is((Tile)obj); }
 	
+	public final int hashCode() { return registryName.hashCode(); }
+	
 	public final boolean is(Tile tile) { return tile.registryName().equals(registryName); }
 	
 	public final Identifier registryName() { return this.registryName; }
@@ -113,7 +114,7 @@ public abstract class Tile
 	/** Shallow reference list of tile tags, each only containing this tile. Only used at startup. */
 	public final List<TileTag> tags() { return tileTags.stream().map(id -> new TileTag(id).add(registryName)).toList(); }
 	
-	public final boolean isBlank() { return this.registryName.equals(CDTiles.BLANK.get().registryName()); }
+	public final boolean isBlank() { return this.registryName.equals(CDTiles.ID_BLANK); }
 	
 	public final boolean isFlag() { return type == GenStyle.FLAG; }
 	
@@ -122,6 +123,9 @@ public abstract class Tile
 		return predicate.test(this, pos, set);
 	}
 	
+	/** Returns the distance within which placing a tile may change whether this tile can exist, as per {@link TilePredicate#radius} */
+	public final int conditionRadius() { return predicate.radius(); }
+	
 	/** Returns a valid rotation for an instance of this tile at the given coordinates in the tile set */
 	@NotNull
 	public final BlockRotation assignRotation(BlockPos pos, BlueprintTileGrid grid, Function<BlockPos,Optional<Tile>> func, Random rand)
@@ -131,6 +135,15 @@ public abstract class Tile
 	
 	public abstract void generate(TileInstance inst, BlockPos pos, ServerWorld world);
 	
+	/**
+	 * Generates this tile through the given writer where possible.<br>
+	 * Tiles that cannot be expressed as simple block placements generate directly into the world instead.
+	 */
+	public void generate(TileInstance inst, BlockPos pos, SectionWriter writer)
+	{
+		generate(inst, pos, writer.world());
+	}
+	
 	/** Helper function for placing blocks that avoids breaking anything that should be indestructible */
 	public static void tryPlace(BlockState state, BlockPos pos, ServerWorld world)
 	{
@@ -246,6 +259,12 @@ public abstract class Tile
 							final int sc = Tile.TILE_SIZE - 1;
 							BlockPos.Mutable.iterate(pos, pos.add(sc, sc, sc)).forEach(p -> Tile.tryPlace(Blocks.AIR.getDefaultState(), p, world));
 						}
+						
+						public void generate(TileInstance inst, BlockPos pos, SectionWriter writer)
+						{
+							final int sc = Tile.TILE_SIZE - 1;
+							BlockPos.Mutable.iterate(pos, pos.add(sc, sc, sc)).forEach(p -> writer.place(p, Blocks.AIR.getDefaultState()));
+						}
 					};
 				case BLOCK:
 					return id -> new Tile(id, tileTags, style, states, predicate, RotationSupplier.NONE.get())
@@ -256,7 +275,18 @@ public abstract class Tile
 							List<BlockState> blocks = states.orElse(Lists.newArrayList(Blocks.AIR.getDefaultState()));
 							if(blocks.isEmpty())
 								return;
-							BlockPos.Mutable.iterate(pos, pos.add(sc, sc, sc)).forEach(p -> Tile.tryPlace(blocks.get(world.random.nextInt(blocks.size())), p, world));
+							final Random rand = inst.random();
+							BlockPos.Mutable.iterate(pos, pos.add(sc, sc, sc)).forEach(p -> Tile.tryPlace(blocks.get(rand.nextInt(blocks.size())), p, world));
+						}
+						
+						public void generate(TileInstance inst, BlockPos pos, SectionWriter writer)
+						{
+							final int sc = Tile.TILE_SIZE - 1;
+							List<BlockState> blocks = states.orElse(Lists.newArrayList(Blocks.AIR.getDefaultState()));
+							if(blocks.isEmpty())
+								return;
+							final Random rand = inst.random();
+							BlockPos.Mutable.iterate(pos, pos.add(sc, sc, sc)).forEach(p -> writer.place(p, blocks.get(rand.nextInt(blocks.size()))));
 						}
 					};
 				case STRUCTURE:
@@ -264,15 +294,11 @@ public abstract class Tile
 					{
 						public void generate(TileInstance inst, BlockPos pos, ServerWorld world)
 						{
-							DynamicRegistryManager manager = world.getRegistryManager();
-							Registry<StructurePool> registry = manager.getOrThrow(RegistryKeys.TEMPLATE_POOL);
-							StructurePoolAliasLookup alias = StructurePoolAliasLookup.create(List.of(), pos, world.getSeed());
-							RegistryKey<StructurePool> structureKey = inst.theme().getTilePool(inst.tile());
-							Optional<StructurePool> poolOpt = Optional.of(structureKey).flatMap(key -> registry.getOptionalValue(alias.lookup(key)));
+							Optional<StructurePool> poolOpt = StructureTileCache.pool(world, inst.theme(), inst.tile());
 							if(poolOpt.isEmpty())
 							{
 								LOGGER.warn("Blank structure pool: {} for tile {} in theme {}", 
-										structureKey.getValue().toString(), 
+										inst.theme().getTilePool(inst.tile()).getValue().toString(), 
 										inst.tile().registryName().toString(), 
 										inst.theme().registryName().toString());
 								return;
@@ -307,7 +333,7 @@ public abstract class Tile
 									place,
 									element.getGroundLevelDelta(),
 									rotation,
-									element.getBoundingBox(structureManager, place, rotation),
+									StructureTileCache.boundingBox(structureManager, element, rotation, place),
 									StructureLiquidSettings.IGNORE_WATERLOGGING
 									);
 							piece.generate(world, world.getStructureAccessor(), world.getChunkManager().getChunkGenerator(), rand, BlockBox.create(pos, pos.add(1, 1, 1)), place, false);
@@ -0,0 +1,94 @@
+package com.lying.worldgen.tile;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.google.common.collect.Lists;
+import com.lying.init.CDTiles;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.util.Identifier;
+
+/**
+ * Immutable mapping of all registered tiles to dense integer IDs.<br>
+ * A new palette is frozen each time tiles are reloaded, with the blank tile always assigned {@link #BLANK_ID}.
+ */
+public final class TilePalette
+{
+	public static final int BLANK_ID = 0;
+	public static final int UNKNOWN = -1;
+	private static final AtomicInteger GENERATIONS = new AtomicInteger(0);
+	private static volatile TilePalette CURRENT = null;
+	
+	private final int generation;
+	private final Tile[] tiles;
+	private final Object2IntMap<Identifier> ids = new Object2IntOpenHashMap<>();
+	
+	private TilePalette(List<Tile> tilesIn)
+	{
+		generation = GENERATIONS.incrementAndGet();
+		tiles = tilesIn.toArray(new Tile[0]);
+		ids.defaultReturnValue(UNKNOWN);
+		for(int i=0; i<tiles.length; i++)
+		{
+			ids.put(tiles[i].registryName(), i);
+			tiles[i].paletteSlot = ((long)generation << 32) | i;
+		}
+	}
+	
+	/** Returns the palette of the most recent reload, freezing the hard-coded tiles if no reload has occurred yet */
+	public static TilePalette current()
+	{
+		TilePalette palette = CURRENT;
+		if(palette == null)
+			synchronized(TilePalette.class)
+			{
+				if(CURRENT == null)
+					CURRENT = new TilePalette(order(CDTiles.defaults()));
+				palette = CURRENT;
+			}
+		return palette;
+	}
+	
+	/** Builds and publishes a new palette from the given tiles */
+	public static synchronized TilePalette freeze(Collection<Tile> tilesIn)
+	{
+		return CURRENT = new TilePalette(order(tilesIn));
+	}
+	
+	/** Places the blank tile first, followed by all other tiles in order of registry name */
+	private static List<Tile> order(Collection<Tile> tilesIn)
+	{
+		List<Tile> ordered = Lists.newArrayList();
+		ordered.add(CDTiles.BLANK.get());
+		tilesIn.stream()
+			.filter(t -> !t.isBlank())
+			.sorted(Comparator.comparing(t -> t.registryName().toString()))
+			.forEach(ordered::add);
+		return ordered;
+	}
+	
+	public int generation() { return generation; }
+	
+	public int size() { return tiles.length; }
+	
+	/** Returns the ID of the given tile in this palette, or {@link #UNKNOWN} */
+	public int idOf(Tile tile)
+	{
+		// Registered tiles carry their ID directly, packed alongside the generation it belongs to
+		long slot = tile.paletteSlot;
+		if((int)(slot >> 32) == generation)
+			return (int)slot;
+		return ids.getInt(tile.registryName());
+	}
+	
+	public int idOf(Identifier registryName) { return ids.getInt(registryName); }
+	
+	@Nullable
+	public Tile get(int id) { return id >= 0 && id < tiles.length ? tiles[id] : null; }
+}
@@ -4,6 +4,7 @@ import java.util.List;
 
 import com.google.common.collect.Lists;
 import com.lying.grid.BlueprintTileGrid;
+import com.lying.worldgen.tile.condition.CompiledCondition;
 import com.lying.worldgen.tile.condition.Condition;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.DataResult;
@@ -17,10 +18,13 @@ public class TilePredicate
 			TilePredicate::contents);
 	
 	private final List<Condition> primitives = Lists.newArrayList();
+	/** All primitives flattened into a single evaluator when loaded, cheapest first */
+	private final CompiledCondition compiled;
 	
 	protected TilePredicate(List<Condition> conditionsIn)
 	{
 		primitives.addAll(conditionsIn);
+		compiled = CompiledCondition.allOf(Condition.compileByCost(primitives));
 	}
 	
 	public List<Condition> contents() { return primitives; }
@@ -32,7 +36,21 @@ public class TilePredicate
 	
 	public boolean test(Tile tile, BlockPos pos, BlueprintTileGrid set)
 	{
-		return primitives.isEmpty() || primitives.stream().allMatch(p -> p.test(tile, pos, set));
+		// Compiled conditions identify tiles by their ID within the grid, so tiles unknown to it are tested directly
+		int id = set.findId(tile);
+		if(id == TilePalette.UNKNOWN)
+			return primitives.isEmpty() || primitives.stream().allMatch(p -> p.test(tile, pos, set));
+		
+		return compiled.test(id, pos.asLong(), set);
+	}
+	
+	/** Returns the largest {@link Condition#radius} of any condition in this predicate */
+	public int radius()
+	{
+		int radius = 0;
+		for(Condition condition : primitives)
+			radius = Math.max(radius, condition.radius());
+		return radius;
 	}
 	
 	public static class Builder
@@ -6,9 +6,11 @@ import com.google.common.collect.Lists;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.lying.grid.BlueprintTileGrid;
+import com.lying.grid.TileStorage;
 import com.lying.init.CDTileConditions;
 import com.lying.init.CDTiles;
 import com.lying.worldgen.tile.Tile;
+import com.lying.worldgen.tile.TilePalette;
 import com.mojang.serialization.JsonOps;
 
 import net.minecraft.util.Identifier;
@@ -59,6 +61,27 @@ public class Adjacent extends Condition
 		return false;
 	}
 	
+	public int radius() { return extend(child.radius(), 1); }
+	
+	public CompiledCondition compile()
+	{
+		final Direction[] sides = faces.toArray(new Direction[0]);
+		final CompiledCondition test = child.compile();
+		return (tile, key, grid) -> 
+		{
+			for(Direction face : sides)
+			{
+				long offset = BlockPos.offset(key, face);
+				int id = grid.idAt(offset);
+				if(id != TileStorage.ABSENT && test.test(id, offset, grid))
+					return true;
+			}
+			return false;
+		};
+	}
+	
+	public int cost() { return costOf(faces.size(), child.cost()); }
+	
 	public JsonElement toJson(JsonOps ops)
 	{
 		JsonObject obj = asJsonObject(ops);
@@ -111,6 +134,8 @@ public class Adjacent extends Condition
 		{
 			return !super.test(tileIn, pos, set);
 		}
+		
+		public CompiledCondition compile() { return super.compile().negate(); }
 	}
 	
 	public static class Capped extends Adjacent
@@ -148,6 +173,26 @@ public class Adjacent extends Condition
 			return true;
 		}
 		
+		public CompiledCondition compile()
+		{
+			final Direction[] sides = faces.toArray(new Direction[0]);
+			final CompiledCondition test = child.compile();
+			final int cap = i;
+			return (tile, key, grid) -> 
+			{
+				int tally = 0;
+				for(Direction face : sides)
+				{
+					long offset = BlockPos.offset(key, face);
+					int id = grid.idAt(offset);
+					if(id != TileStorage.ABSENT && id != TilePalette.BLANK_ID && test.test(id, offset, grid))
+						if(++tally >= cap)
+							return false;
+				}
+				return true;
+			};
+		}
+		
 		public JsonElement toJson(JsonOps ops)
 		{
 			JsonObject obj = super.toJson(ops).getAsJsonObject();
@@ -181,7 +226,7 @@ public class Adjacent extends Condition
 			condition.setFaces(facesIn);
 			return condition;
 		}
-
+		
 		public JsonElement toJson(JsonOps ops)
 		{
 			if(faces.size() == Direction.values().length)
@@ -213,6 +258,25 @@ public class Adjacent extends Condition
 			return false;
 		}
 		
+		public int radius() { return 1; }
+		
+		public CompiledCondition compile()
+		{
+			final Direction[] sides = faces.toArray(new Direction[0]);
+			return (tile, key, grid) -> 
+			{
+				for(Direction face : sides)
+				{
+					int id = grid.idAt(BlockPos.offset(key, face));
+					if(id != TileStorage.ABSENT && grid.tileOf(id).registryName().equals(CDTiles.ID_PASSAGE_FLAG))
+						return true;
+				}
+				return false;
+			};
+		}
+		
+		public int cost() { return faces.size() * 2; }
+		
 		public static class Inverse extends Passage
 		{
 			public Inverse(Identifier idIn)
@@ -236,6 +300,8 @@ public class Adjacent extends Condition
 			{
 				return !super.test(tileIn, pos, set);
 			}
+			
+			public CompiledCondition compile() { return super.compile().negate(); }
 		}
 	}
 }
\ No newline at end of file
@@ -23,6 +23,22 @@ public abstract class Boolean extends Condition
 		super(idIn);
 	}
 	
+	public int radius()
+	{
+		int radius = 0;
+		for(Condition child : children)
+			radius = Math.max(radius, child.radius());
+		return radius;
+	}
+	
+	public int cost()
+	{
+		int cost = 0;
+		for(Condition child : children)
+			cost = (int)Math.min(Integer.MAX_VALUE, (long)cost + child.cost());
+		return cost;
+	}
+	
 	public JsonElement toJson(JsonOps ops)
 	{
 		JsonObject obj = asJsonObject(ops);
@@ -54,6 +70,8 @@ public abstract class Boolean extends Condition
 		}
 		
 		public boolean test(Tile tileIn, BlockPos pos, BlueprintTileGrid set) { return children.stream().allMatch(c -> c.test(tileIn, pos, set)); }
+		
+		public CompiledCondition compile() { return CompiledCondition.allOf(compileByCost(children)); }
 	}
 	
 	public static class Or extends Boolean
@@ -72,5 +90,7 @@ public abstract class Boolean extends Condition
 		}
 		
 		public boolean test(Tile tileIn, BlockPos pos, BlueprintTileGrid set) { return children.stream().anyMatch(c -> c.test(tileIn, pos, set)); }
+		
+		public CompiledCondition compile() { return CompiledCondition.anyOf(compileByCost(children)); }
 	}
 }
\ No newline at end of file
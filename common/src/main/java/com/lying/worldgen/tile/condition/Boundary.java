@@ -41,6 +41,23 @@ public class Boundary extends Condition
 		return faces.stream().anyMatch(d -> set.isBoundary(pos, d));
 	}
 	
+	/** Only the shape of the grid is checked, which does not change as tiles are placed */
+	public int radius() { return 0; }
+	
+	public CompiledCondition compile()
+	{
+		final Direction[] sides = faces.toArray(new Direction[0]);
+		return (tile, key, grid) -> 
+		{
+			for(Direction face : sides)
+				if(grid.isBoundary(key, face))
+					return true;
+			return false;
+		};
+	}
+	
+	public int cost() { return faces.size(); }
+	
 	public JsonElement toJson(JsonOps ops)
 	{
 		if(faces.size() == Direction.values().length)
@@ -82,5 +99,7 @@ public class Boundary extends Condition
 		{
 			return faces.stream().noneMatch(d -> set.isBoundary(pos, d));
 		}
+		
+		public CompiledCondition compile() { return super.compile().negate(); }
 	}
 }
\ No newline at end of file
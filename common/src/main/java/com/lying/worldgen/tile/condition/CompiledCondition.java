@@ -0,0 +1,64 @@
+package com.lying.worldgen.tile.condition;
+
+import com.lying.grid.BlueprintTileGrid;
+
+/**
+ * Flattened form of a {@link Condition}, evaluated directly against the packed positions and tile IDs of a grid without allocating.<br>
+ * Tile IDs are those used by the grid being evaluated, as per {@link BlueprintTileGrid#idAt}.
+ */
+@FunctionalInterface
+public interface CompiledCondition
+{
+	public static final CompiledCondition NEVER		= (tile, key, grid) -> false;
+	public static final CompiledCondition ALWAYS	= (tile, key, grid) -> true;
+	
+	/** Evaluates if the tile with the given ID at the given packed position satisfies this condition */
+	public boolean test(int tile, long key, BlueprintTileGrid grid);
+	
+	public default CompiledCondition negate()
+	{
+		return (tile, key, grid) -> !test(tile, key, grid);
+	}
+	
+	/** Returns a condition satisfied only if every given condition is, testing them in order */
+	public static CompiledCondition allOf(CompiledCondition... conditions)
+	{
+		switch(conditions.length)
+		{
+			case 0: return ALWAYS;
+			case 1: return conditions[0];
+			case 2:
+				final CompiledCondition a = conditions[0], b = conditions[1];
+				return (tile, key, grid) -> a.test(tile, key, grid) && b.test(tile, key, grid);
+			default:
+				return (tile, key, grid) -> 
+				{
+					for(CompiledCondition condition : conditions)
+						if(!condition.test(tile, key, grid))
+							return false;
+					return true;
+				};
+		}
+	}
+	
+	/** Returns a condition satisfied if any given condition is, testing them in order */
+	public static CompiledCondition anyOf(CompiledCondition... conditions)
+	{
+		switch(conditions.length)
+		{
+			case 0: return NEVER;
+			case 1: return conditions[0];
+			case 2:
+				final CompiledCondition a = conditions[0], b = conditions[1];
+				return (tile, key, grid) -> a.test(tile, key, grid) || b.test(tile, key, grid);
+			default:
+				return (tile, key, grid) -> 
+				{
+					for(CompiledCondition condition : conditions)
+						if(condition.test(tile, key, grid))
+							return true;
+					return false;
+				};
+		}
+	}
+}
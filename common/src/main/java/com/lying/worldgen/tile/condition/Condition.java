@@ -1,5 +1,6 @@
 package com.lying.worldgen.tile.condition;
 
+import java.util.Comparator;
 import java.util.List;
 
 import org.jetbrains.annotations.NotNull;
@@ -24,6 +25,11 @@ public abstract class Condition
 	public static final Codec<Condition> CODEC = Codec.of(Condition::encode, Condition::decode);
 	protected static final Codec<List<Direction>> FACE_LIST_CODEC	= Direction.CODEC.listOf();
 	
+	/** Radius of conditions that may depend on the contents of any position in the grid */
+	public static final int GLOBAL = Integer.MAX_VALUE;
+	/** Cost of conditions that do not declare one */
+	protected static final int DEFAULT_COST = 64;
+	
 	protected final Identifier id;
 	
 	protected Condition(Identifier idIn)
@@ -36,6 +42,39 @@ public abstract class Condition
 	/** Evaluates if the given tile at the given position evaluates correctly with this condition */
 	public abstract boolean test(Tile tileIn, BlockPos pos, BlueprintTileGrid set);
 	
+	/**
+	 * Returns the furthest distance along any axis from the evaluated position at which a change of tile may alter the result of this condition.<br>
+	 * Conditions that do not declare a radius are assumed to be {@link #GLOBAL}.
+	 */
+	public int radius() { return GLOBAL; }
+	
+	/** Extends the given radius by the given distance, without exceeding {@link #GLOBAL} */
+	protected static int extend(int radius, int distance) { return radius >= GLOBAL - distance ? GLOBAL : radius + distance; }
+	
+	/**
+	 * Returns an evaluator equivalent to {@link #test}, operating on the packed positions and tile IDs of the grid.<br>
+	 * Conditions are compiled when their owning predicate is loaded, so should not be modified afterwards.
+	 */
+	public CompiledCondition compile()
+	{
+		return (tile, key, grid) -> test(grid.tileOf(tile), BlockPos.fromLong(key), grid);
+	}
+	
+	/** Relative estimate of the work needed to evaluate this condition, so cheaper conditions can be tested first */
+	public int cost() { return DEFAULT_COST; }
+	
+	/** Returns the cost of testing the given number of neighbours, each of which evaluates a child of the given cost */
+	protected static int costOf(int neighbours, int childCost) { return (int)Math.min(Integer.MAX_VALUE, (long)neighbours * (1L + childCost)); }
+	
+	/** Compiles the given conditions in order of increasing {@link #cost} */
+	public static CompiledCondition[] compileByCost(List<Condition> conditions)
+	{
+		return conditions.stream()
+				.sorted(Comparator.comparingInt(Condition::cost))
+				.map(Condition::compile)
+				.toArray(CompiledCondition[]::new);
+	}
+	
 	public JsonElement toJson(JsonOps ops)
 	{
 		// Conditions are stored as just their registry ID unless they necessitate more information
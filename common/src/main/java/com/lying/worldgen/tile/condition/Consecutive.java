@@ -8,6 +8,7 @@ import com.google.gson.JsonObject;
 import com.lying.grid.BlueprintTileGrid;
 import com.lying.init.CDTileConditions;
 import com.lying.worldgen.tile.Tile;
+import com.lying.worldgen.tile.TilePalette;
 import com.mojang.serialization.JsonOps;
 
 import net.minecraft.util.Identifier;
@@ -45,6 +46,24 @@ public class Consecutive extends Condition
 		return false;
 	}
 	
+	public int radius() { return 1; }
+	
+	public CompiledCondition compile()
+	{
+		final Direction[] sides = faces.toArray(new Direction[0]);
+		return (tile, key, grid) -> 
+		{
+			if(tile == TilePalette.BLANK_ID)
+				return false;
+			for(Direction face : sides)
+				if(grid.idAt(BlockPos.offset(key, face)) == tile)
+					return true;
+			return false;
+		};
+	}
+	
+	public int cost() { return faces.size(); }
+	
 	public JsonElement toJson(JsonOps ops)
 	{
 		if(faces.size() == Direction.values().length)
@@ -86,5 +105,7 @@ public class Consecutive extends Condition
 		{
 			return !super.test(tileIn, pos, set);
 		}
+		
+		public CompiledCondition compile() { return super.compile().negate(); }
 	}
 }
\ No newline at end of file
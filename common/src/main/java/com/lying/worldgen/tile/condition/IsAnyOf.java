@@ -1,5 +1,6 @@
 package com.lying.worldgen.tile.condition;
 
+import java.util.BitSet;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,6 +12,7 @@ import com.lying.grid.BlueprintTileGrid;
 import com.lying.init.CDTileConditions;
 import com.lying.init.CDTileTags;
 import com.lying.worldgen.tile.Tile;
+import com.lying.worldgen.tile.TilePalette;
 import com.mojang.serialization.JsonOps;
 
 import net.minecraft.util.Identifier;
@@ -19,6 +21,8 @@ import net.minecraft.util.math.BlockPos;
 public class IsAnyOf extends Condition
 {
 	protected final List<Identifier> ids = Lists.newArrayList();
+	/** Palette IDs of all matching tiles, rebuilt whenever the palette changes */
+	private volatile PaletteMatches matches = null;
 	
 	public IsAnyOf(Identifier idIn)
 	{
@@ -34,7 +38,52 @@ public class IsAnyOf extends Condition
 		return condition;
 	}
 	
-	public boolean test(Tile tileIn, BlockPos pos, BlueprintTileGrid set) { return ids.stream().anyMatch(tileIn.registryName()::equals); }
+	public boolean test(Tile tileIn, BlockPos pos, BlueprintTileGrid set)
+	{
+		TilePalette palette = TilePalette.current();
+		int id = palette.idOf(tileIn);
+		return id == TilePalette.UNKNOWN ? testUnregistered(tileIn) : matchesIn(palette).get(id);
+	}
+	
+	/** Only the tile being evaluated is checked */
+	public int radius() { return 0; }
+	
+	public CompiledCondition compile()
+	{
+		return (tile, key, grid) -> 
+		{
+			TilePalette palette = grid.palette();
+			return tile < palette.size() ? matchesIn(palette).get(tile) : testUnregistered(grid.tileOf(tile));
+		};
+	}
+	
+	public int cost() { return 1; }
+	
+	/** Fallback for tiles not present in the current palette */
+	protected boolean testUnregistered(Tile tileIn) { return ids.contains(tileIn.registryName()); }
+	
+	/** Returns the set of palette IDs this condition accepts */
+	protected BitSet collectMatches(TilePalette palette)
+	{
+		BitSet bits = new BitSet(palette.size());
+		for(Identifier id : ids)
+		{
+			int index = palette.idOf(id);
+			if(index != TilePalette.UNKNOWN)
+				bits.set(index);
+		}
+		return bits;
+	}
+	
+	protected final BitSet matchesIn(TilePalette palette)
+	{
+		PaletteMatches cached = matches;
+		if(cached == null || cached.generation() != palette.generation())
+			matches = cached = new PaletteMatches(palette.generation(), collectMatches(palette));
+		return cached.ids();
+	}
+	
+	private static record PaletteMatches(int generation, BitSet ids) { }
 	
 	public JsonElement toJson(JsonOps ops)
 	{
@@ -48,6 +97,7 @@ public class IsAnyOf extends Condition
 	public Condition fromJson(JsonObject obj, JsonOps ops)
 	{
 		ids.clear();
+		matches = null;
 		JsonArray set = obj.getAsJsonArray("set");
 		set.forEach(e -> ids.add(Identifier.CODEC.parse(ops, e).getOrThrow()));
 		return this;
@@ -69,7 +119,7 @@ public class IsAnyOf extends Condition
 			return condition;
 		}
 		
-		public boolean test(Tile tileIn, BlockPos pos, BlueprintTileGrid set)
+		protected boolean testUnregistered(Tile tileIn)
 		{
 			return ids.stream()
 				.map(CDTileTags::get)
@@ -77,5 +127,21 @@ public class IsAnyOf extends Condition
 				.map(Optional::get)
 				.anyMatch(tag -> tag.contains(tileIn));
 		}
+		
+		protected BitSet collectMatches(TilePalette palette)
+		{
+			BitSet bits = new BitSet(palette.size());
+			ids.stream()
+				.map(CDTileTags::get)
+				.filter(Optional::isPresent)
+				.map(Optional::get)
+				.forEach(tag -> tag.contents().forEach(id -> 
+				{
+					int index = palette.idOf(id);
+					if(index != TilePalette.UNKNOWN)
+						bits.set(index);
+				}));
+			return bits;
+		}
 	}
 }
\ No newline at end of file
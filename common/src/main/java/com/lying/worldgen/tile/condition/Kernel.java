@@ -0,0 +1,131 @@
+package com.lying.worldgen.tile.condition;
+
+import java.util.BitSet;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+import com.lying.grid.BlueprintTileGrid;
+import com.lying.grid.TileStorage;
+import com.lying.worldgen.tile.TilePalette;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Fixed set of offsets searched around a position by conditions such as {@link Near} and {@link NearBox}.<br>
+ * Kernels are immutable once built, so may be shared between conditions and threads.
+ */
+public final class Kernel
+{
+	private static final Map<Double, Kernel> SPHERES = Maps.newConcurrentMap();
+	
+	/** Offsets as consecutive X, Y, Z triples */
+	private final int[] offsets;
+	/** The same offsets packed as positions, for membership tests */
+	private final LongSet members = new LongOpenHashSet();
+	/** Largest distance of any offset along any axis */
+	private final int reach;
+	
+	private Kernel(int[] offsetsIn)
+	{
+		offsets = offsetsIn;
+		int max = 0;
+		for(int i=0; i<offsets.length; i+=3)
+		{
+			members.add(BlockPos.asLong(offsets[i], offsets[i + 1], offsets[i + 2]));
+			max = Math.max(max, Math.max(Math.abs(offsets[i]), Math.max(Math.abs(offsets[i + 1]), Math.abs(offsets[i + 2]))));
+		}
+		reach = max;
+	}
+	
+	/** Returns the shared kernel of all offsets closer than the given distance, excluding the origin */
+	public static Kernel sphere(double distance)
+	{
+		return SPHERES.computeIfAbsent(distance, d -> 
+		{
+			final int reach = (int)Math.ceil(d);
+			return of(-reach, reach, -reach, reach, -reach, reach, (x, y, z) -> !(x == 0 && y == 0 && z == 0) && x * x + y * y + z * z < d * d);
+		});
+	}
+	
+	/** Returns a kernel of all offsets within the given inclusive ranges that satisfy the given predicate */
+	public static Kernel of(int minX, int maxX, int minY, int maxY, int minZ, int maxZ, OffsetPredicate predicate)
+	{
+		IntList list = new IntArrayList();
+		for(int x=minX; x<=maxX; x++)
+			for(int y=minY; y<=maxY; y++)
+				for(int z=minZ; z<=maxZ; z++)
+					if(predicate.test(x, y, z))
+					{
+						list.add(x);
+						list.add(y);
+						list.add(z);
+					}
+		return new Kernel(list.toIntArray());
+	}
+	
+	public int size() { return offsets.length / 3; }
+	
+	public boolean contains(int x, int y, int z)
+	{
+		return Math.abs(x) <= reach && Math.abs(y) <= reach && Math.abs(z) <= reach && members.contains(BlockPos.asLong(x, y, z));
+	}
+	
+	/** Returns true if the tile at any offset from the given position satisfies the given condition */
+	public boolean anyMatch(CompiledCondition test, long key, BlueprintTileGrid grid)
+	{
+		for(int i=0; i<offsets.length; i+=3)
+		{
+			long offset = BlockPos.add(key, offsets[i], offsets[i + 1], offsets[i + 2]);
+			int id = grid.idAt(offset);
+			if(id != TileStorage.ABSENT && test.test(id, offset, grid))
+				return true;
+		}
+		return false;
+	}
+	
+	/** Compiles a condition satisfied if the tile at any offset from the evaluated position satisfies the given condition */
+	public CompiledCondition search(Condition child)
+	{
+		final CompiledCondition test = child.compile();
+		if(!(child instanceof IsAnyOf match))
+			return (tile, key, grid) -> anyMatch(test, key, grid);
+		
+		// Tile type conditions can instead be answered from the positions of matching tiles, whenever those are fewer than the offsets
+		return (tile, key, grid) -> 
+		{
+			BitSet ids;
+			if(grid.hasUnregistered() || (ids = match.matchesIn(grid.palette())).get(TilePalette.BLANK_ID))
+				return anyMatch(test, key, grid);
+			
+			int count = 0;
+			for(int id = ids.nextSetBit(0); id >= 0 && count < size(); id = ids.nextSetBit(id + 1))
+				count += grid.tallyOf(id);
+			if(count >= size())
+				return anyMatch(test, key, grid);
+			
+			final int x = BlockPos.unpackLongX(key), y = BlockPos.unpackLongY(key), z = BlockPos.unpackLongZ(key);
+			for(int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1))
+			{
+				LongIterator iterator = grid.positionsOf(id).iterator();
+				while(iterator.hasNext())
+				{
+					long other = iterator.nextLong();
+					if(contains(BlockPos.unpackLongX(other) - x, BlockPos.unpackLongY(other) - y, BlockPos.unpackLongZ(other) - z))
+						return true;
+				}
+			}
+			return false;
+		};
+	}
+	
+	@FunctionalInterface
+	public static interface OffsetPredicate
+	{
+		public boolean test(int x, int y, int z);
+	}
+}
@@ -53,6 +53,31 @@ public class MaxAdjacentBoundaries extends Condition
 		return true;
 	}
 	
+	/** Only the shape of the grid is checked, which does not change as tiles are placed */
+	public int radius() { return 0; }
+	
+	public CompiledCondition compile()
+	{
+		final Direction[] sides = faces.toArray(new Direction[0]);
+		final int cap = i;
+		return (tile, key, grid) -> !reachesCap(sides, cap, key, grid);
+	}
+	
+	/** Returns true if at least the given number of the given sides of the given position border the edge of the grid */
+	protected static boolean reachesCap(Direction[] sides, int cap, long key, BlueprintTileGrid grid)
+	{
+		int tally = 0;
+		for(Direction face : sides)
+		{
+			long offset = BlockPos.offset(key, face);
+			if(grid.contains(offset) && grid.isBoundary(offset, face) && ++tally >= cap)
+				return true;
+		}
+		return false;
+	}
+	
+	public int cost() { return faces.size() * 2; }
+	
 	public JsonElement toJson(JsonOps ops)
 	{
 		JsonObject obj = asJsonObject(ops);
@@ -98,5 +123,12 @@ public class MaxAdjacentBoundaries extends Condition
 						return true;
 			return false;
 		}
+		
+		public CompiledCondition compile()
+		{
+			final Direction[] sides = faces.toArray(new Direction[0]);
+			final int cap = i;
+			return (tile, key, grid) -> reachesCap(sides, cap, key, grid);
+		}
 	}
 }
\ No newline at end of file
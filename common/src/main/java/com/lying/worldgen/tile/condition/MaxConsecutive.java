@@ -8,6 +8,7 @@ import com.google.gson.JsonObject;
 import com.lying.grid.BlueprintTileGrid;
 import com.lying.init.CDTileConditions;
 import com.lying.worldgen.tile.Tile;
+import com.lying.worldgen.tile.TilePalette;
 import com.mojang.serialization.JsonOps;
 
 import net.minecraft.util.Identifier;
@@ -56,6 +57,26 @@ public class MaxConsecutive extends Condition
 		return true;
 	}
 	
+	public int radius() { return 1; }
+	
+	public CompiledCondition compile()
+	{
+		final Direction[] sides = faces.toArray(new Direction[0]);
+		final int cap = i;
+		return (tile, key, grid) -> 
+		{
+			if(tile == TilePalette.BLANK_ID)
+				return true;
+			int tally = 0;
+			for(Direction face : sides)
+				if(grid.idAt(BlockPos.offset(key, face)) == tile && ++tally >= cap)
+					return false;
+			return true;
+		};
+	}
+	
+	public int cost() { return faces.size(); }
+	
 	public JsonElement toJson(JsonOps ops)
 	{
 		JsonObject obj = asJsonObject(ops);
@@ -31,6 +31,17 @@ public class MaxPerRoom extends Condition
 		return set.tallyOf(tileIn) < i;
 	}
 	
+	/** Any tile placed anywhere in the grid may change the tally */
+	public int radius() { return GLOBAL; }
+	
+	public CompiledCondition compile()
+	{
+		final int cap = i;
+		return (tile, key, grid) -> grid.tallyOf(tile) < cap;
+	}
+	
+	public int cost() { return 1; }
+	
 	public JsonElement toJson(JsonOps ops)
 	{
 		JsonObject obj = asJsonObject(ops);
@@ -27,7 +27,7 @@ public class Near extends Condition
 		condition.child = childIn;
 		return condition;
 	}
-
+	
 	public boolean test(Tile tileIn, BlockPos pos, BlueprintTileGrid set)
 	{
 		for(int x=-(int)d; x<d; x++)
@@ -50,6 +50,12 @@ public class Near extends Condition
 		return false;
 	}
 	
+	public int radius() { return extend(child.radius(), (int)Math.ceil(d)); }
+	
+	public CompiledCondition compile() { return Kernel.sphere(d).search(child); }
+	
+	public int cost() { return costOf(Kernel.sphere(d).size(), child.cost()); }
+	
 	public JsonElement toJson(JsonOps ops)
 	{
 		JsonObject obj = asJsonObject(ops);
@@ -79,10 +85,12 @@ public class Near extends Condition
 			condition.child = childIn;
 			return condition;
 		}
-
+		
 		public boolean test(Tile tileIn, BlockPos pos, BlueprintTileGrid set)
 		{
 			return !super.test(tileIn, pos, set);
 		}
+		
+		public CompiledCondition compile() { return super.compile().negate(); }
 	}
 }
\ No newline at end of file
@@ -10,6 +10,7 @@ import com.mojang.serialization.JsonOps;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Box;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.Vec3d;
 
 public class NearBox extends Condition
@@ -43,6 +44,26 @@ public class NearBox extends Condition
 		return false;
 	}
 	
+	public int radius()
+	{
+		double reach = Math.max(
+				Math.max(Math.max(Math.abs(bounds.minX), Math.abs(bounds.maxX)), Math.max(Math.abs(bounds.minY), Math.abs(bounds.maxY))), 
+				Math.max(Math.abs(bounds.minZ), Math.abs(bounds.maxZ)));
+		return extend(child.radius(), (int)Math.ceil(reach));
+	}
+	
+	public CompiledCondition compile()
+	{
+		// The same offsets as the loops of test
+		return Kernel.of(
+				(int)bounds.minX, MathHelper.ceil(bounds.maxX) - 1, 
+				-(int)bounds.minY, MathHelper.ceil(bounds.maxY) - 1, 
+				-(int)bounds.minZ, MathHelper.ceil(bounds.maxZ) - 1, 
+				(x, y, z) -> true).search(child);
+	}
+	
+	public int cost() { return costOf((int)Math.min(Integer.MAX_VALUE, Math.ceil(bounds.getLengthX() * bounds.getLengthY() * bounds.getLengthZ())), child.cost()); }
+	
 	public JsonElement toJson(JsonOps ops)
 	{
 		JsonObject obj = asJsonObject(ops);
@@ -81,5 +102,15 @@ public class NearBox extends Condition
 				box.contains(new Vec3d(p2.getX() + 0.5D, p2.getY() + 0.5D, p2.getZ() + 0.5D)) && 
 				child.test(t2, p2, set)).isEmpty();
 		}
+		
+		public CompiledCondition compile()
+		{
+			// Every offset whose tile centre lies within the bounds, as tested by box containment
+			return Kernel.of(
+					MathHelper.floor(bounds.minX) - 1, MathHelper.ceil(bounds.maxX), 
+					MathHelper.floor(bounds.minY) - 1, MathHelper.ceil(bounds.maxY), 
+					MathHelper.floor(bounds.minZ) - 1, MathHelper.ceil(bounds.maxZ), 
+					(x, y, z) -> bounds.contains(x + 0.5D, y + 0.5D, z + 0.5D)).search(child).negate();
+		}
 	}
 }
\ No newline at end of file
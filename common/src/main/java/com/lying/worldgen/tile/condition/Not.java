@@ -28,6 +28,12 @@ public class Not extends Condition
 	
 	public boolean test(Tile tileIn, BlockPos pos, BlueprintTileGrid set) { return !child.test(tileIn, pos, set); }
 	
+	public int radius() { return child.radius(); }
+	
+	public CompiledCondition compile() { return child.compile().negate(); }
+	
+	public int cost() { return child.cost(); }
+	
 	public JsonElement toJson(JsonOps ops)
 	{
 		JsonObject obj = asJsonObject(ops);
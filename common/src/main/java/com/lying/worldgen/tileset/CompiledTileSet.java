@@ -0,0 +1,154 @@
+package com.lying.worldgen.tileset;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.google.common.collect.Lists;
+import com.lying.init.CDTiles;
+import com.lying.worldgen.tile.Tile;
+
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.random.Random;
+
+/**
+ * Resolved form of a {@link TileSet}, holding its tiles and weights in a fixed order for repeated weighted selection.<br>
+ * Selection from the full set uses a Vose alias table in constant time, and selection from a subset walks only the bits of that subset.<br>
+ * Rebuilt by its tile set whenever tiles are reloaded.
+ */
+public final class CompiledTileSet
+{
+	/** Palette generation the tiles were resolved against */
+	private final int generation;
+	/** All resolvable tiles in the set, including the blank tile if present */
+	private final List<Tile> keys;
+	/** All tiles in the set that may be generated */
+	private final List<Tile> candidates;
+	private final float[] weights;
+	private final float totalWeight;
+	
+	/** Probability of keeping each column of the alias table, rather than taking its alias */
+	private final float[] probability;
+	private final int[] alias;
+	
+	CompiledTileSet(TileSet set, int generationIn)
+	{
+		generation = generationIn;
+		List<Tile> resolved = Lists.newArrayList();
+		for(Identifier id : set.keySet())
+		{
+			Optional<Tile> tile = CDTiles.instance().get(id);
+			if(tile.isPresent())
+				resolved.add(tile.get());
+		}
+		keys = List.copyOf(resolved);
+		candidates = keys.stream().filter(t -> !t.isBlank()).toList();
+		
+		final int size = candidates.size();
+		weights = new float[size];
+		float total = 0F;
+		for(int i=0; i<size; i++)
+			total += (weights[i] = Math.max(0F, set.get(candidates.get(i))));
+		totalWeight = total;
+		
+		probability = new float[size];
+		alias = new int[size];
+		buildAliasTable();
+	}
+	
+	/** Builds the alias table by Vose's method, pairing each under-full column with an over-full one */
+	private void buildAliasTable()
+	{
+		final int size = weights.length;
+		if(size == 0)
+			return;
+		
+		double[] scaled = new double[size];
+		int[] small = new int[size], large = new int[size];
+		int smallCount = 0, largeCount = 0;
+		for(int i=0; i<size; i++)
+		{
+			scaled[i] = totalWeight > 0F ? (double)weights[i] * size / totalWeight : 1D;
+			if(scaled[i] < 1D)
+				small[smallCount++] = i;
+			else
+				large[largeCount++] = i;
+		}
+		
+		while(smallCount > 0 && largeCount > 0)
+		{
+			int less = small[--smallCount], more = large[--largeCount];
+			probability[less] = (float)scaled[less];
+			alias[less] = more;
+			scaled[more] = (scaled[more] + scaled[less]) - 1D;
+			if(scaled[more] < 1D)
+				small[smallCount++] = more;
+			else
+				large[largeCount++] = more;
+		}
+		
+		// Any remaining columns are full, barring rounding error
+		while(largeCount > 0)
+			probability[large[--largeCount]] = 1F;
+		while(smallCount > 0)
+			probability[small[--smallCount]] = 1F;
+	}
+	
+	public boolean isCurrent(int generationIn) { return generation == generationIn; }
+	
+	public List<Tile> keys() { return keys; }
+	
+	/** Tiles that may be generated, in the order used by option bitsets passed to {@link #select} */
+	public List<Tile> candidates() { return candidates; }
+	
+	public int size() { return candidates.size(); }
+	
+	/** Selects a candidate from the given options by weight, using a single random draw */
+	@Nullable
+	public Tile select(BitSet options, Random rand)
+	{
+		final int count = options.cardinality();
+		if(count == 0)
+			return null;
+		else if(count == candidates.size())
+			return candidates.get(selectAny(rand.nextFloat()));
+		
+		float total = 0F;
+		for(int i = options.nextSetBit(0); i >= 0; i = options.nextSetBit(i + 1))
+			total += weights[i];
+		
+		final float selector = rand.nextFloat();
+		if(total <= 0F)
+			return candidates.get(nthSetBit(options, Math.min(count - 1, (int)(selector * count))));
+		
+		float remaining = selector * total;
+		int last = -1;
+		for(int i = options.nextSetBit(0); i >= 0; i = options.nextSetBit(i + 1))
+		{
+			if(weights[i] <= 0F)
+				continue;
+			last = i;
+			if((remaining -= weights[i]) < 0F)
+				return candidates.get(i);
+		}
+		return candidates.get(last);
+	}
+	
+	/** Selects the index of any candidate by weight from the alias table */
+	private int selectAny(float selector)
+	{
+		final float scaled = selector * probability.length;
+		final int column = Math.min(probability.length - 1, (int)scaled);
+		return scaled - column < probability[column] ? column : alias[column];
+	}
+	
+	private static int nthSetBit(BitSet bits, int n)
+	{
+		int i = bits.nextSetBit(0);
+		while(n-- > 0)
+			i = bits.nextSetBit(i + 1);
+		return i;
+	}
+}
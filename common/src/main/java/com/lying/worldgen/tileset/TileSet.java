@@ -1,13 +1,16 @@
 package com.lying.worldgen.tileset;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
-import com.lying.init.CDTiles;
 import com.lying.worldgen.tile.DefaultTiles;
 import com.lying.worldgen.tile.Tile;
+import com.lying.worldgen.tile.TilePalette;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.DataResult;
 import com.mojang.serialization.DynamicOps;
@@ -28,6 +31,8 @@ public class TileSet extends HashMap<Identifier,Float>
 				return tileSet;
 			}));
 	private final Identifier registryName;
+	/** Resolved form of this set, reset by every mutator of the map and rebuilt whenever tiles are reloaded. The map's views are read-only so they cannot bypass this */
+	private transient volatile CompiledTileSet compiled = null;
 	
 	public TileSet(Identifier idIn)
 	{
@@ -38,7 +43,17 @@ public class TileSet extends HashMap<Identifier,Float>
 	
 	public Collection<Tile> keys()
 	{
-		return keySet().stream().map(CDTiles.instance()::get).filter(Optional::isPresent).map(Optional::get).toList();
+		return compiled().keys();
+	}
+	
+	/** Returns the resolved form of this set, compiling it if it is outdated */
+	public CompiledTileSet compiled()
+	{
+		final int generation = TilePalette.current().generation();
+		CompiledTileSet set = compiled;
+		if(set == null || !set.isCurrent(generation))
+			compiled = set = new CompiledTileSet(this, generation);
+		return set;
 	}
 	
 	public boolean containsKey(Tile tileIn) { return containsKey(tileIn.registryName()); }
@@ -52,7 +67,7 @@ public class TileSet extends HashMap<Identifier,Float>
 	
 	public TileSet add(Identifier tileIn, float weightIn)
 	{
-		super.put(tileIn, weightIn);
+		put(tileIn, weightIn);
 		return this;
 	}
 	
@@ -80,6 +95,57 @@ public class TileSet extends HashMap<Identifier,Float>
 		return this;
 	}
 	
+	/** Discards the compiled form of this set after a change, passing through the result of the change */
+	private <T> T changed(T result)
+	{
+		compiled = null;
+		return result;
+	}
+	
+	public Float put(Identifier key, Float value) { return changed(super.put(key, value)); }
+	
+	public void putAll(Map<? extends Identifier, ? extends Float> map)
+	{
+		super.putAll(map);
+		compiled = null;
+	}
+	
+	public Float putIfAbsent(Identifier key, Float value) { return changed(super.putIfAbsent(key, value)); }
+	
+	public Float remove(Object key) { return changed(super.remove(key)); }
+	
+	public boolean remove(Object key, Object value) { return changed(super.remove(key, value)); }
+	
+	public void clear()
+	{
+		super.clear();
+		compiled = null;
+	}
+	
+	public Float replace(Identifier key, Float value) { return changed(super.replace(key, value)); }
+	
+	public boolean replace(Identifier key, Float oldValue, Float newValue) { return changed(super.replace(key, oldValue, newValue)); }
+	
+	public void replaceAll(BiFunction<? super Identifier, ? super Float, ? extends Float> function)
+	{
+		super.replaceAll(function);
+		compiled = null;
+	}
+	
+	public Float compute(Identifier key, BiFunction<? super Identifier, ? super Float, ? extends Float> function) { return changed(super.compute(key, function)); }
+	
+	public Float computeIfAbsent(Identifier key, Function<? super Identifier, ? extends Float> function) { return changed(super.computeIfAbsent(key, function)); }
+	
+	public Float computeIfPresent(Identifier key, BiFunction<? super Identifier, ? super Float, ? extends Float> function) { return changed(super.computeIfPresent(key, function)); }
+	
+	public Float merge(Identifier key, Float value, BiFunction<? super Float, ? super Float, ? extends Float> function) { return changed(super.merge(key, value, function)); }
+	
+	public Set<Identifier> keySet() { return Collections.unmodifiableSet(super.keySet()); }
+	
+	public Collection<Float> values() { return Collections.unmodifiableCollection(super.values()); }
+	
+	public Set<Map.Entry<Identifier, Float>> entrySet() { return Collections.unmodifiableSet(super.entrySet()); }
+	
 	public <T> DataResult<T> encode(final DynamicOps<T> ops)
 	{
 		return CODEC.encodeStart(ops, this);